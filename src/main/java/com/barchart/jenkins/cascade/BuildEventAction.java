@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.Run;
+import hudson.model.TransientBuildActionFactory;
+import hudson.model.AbstractBuild;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Structured build events as JSON pages, see {@link BuildEventLog}.
+ * <p>
+ * Usage: <code>.../cascade-events/json[?offset=0&amp;limit=100]</code>
+ *
+ * @author Andrei Pozolotin
+ */
+public class BuildEventAction extends AbstractAction {
+
+	/**
+	 * Provides action for builds with event file.
+	 */
+	@Extension
+	public static class Factory extends TransientBuildActionFactory {
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public Collection<? extends Action> createFor(final Run target) {
+			if (!(target instanceof AbstractBuild)) {
+				return Collections.emptyList();
+			}
+			final AbstractBuild build = (AbstractBuild) target;
+			if (!BuildEventLog.file(build).exists()) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(new BuildEventAction(build));
+		}
+
+	}
+
+	/**
+	 * Default and maximum page size.
+	 */
+	public static final int PAGE_LIMIT = 1000;
+
+	static int parameter(final StaplerRequest request, final String name,
+			final int value) {
+		final String text = request.getParameter(name);
+		if (text == null) {
+			return value;
+		}
+		try {
+			return Integer.parseInt(text);
+		} catch (final NumberFormatException e) {
+			return value;
+		}
+	}
+
+	private final AbstractBuild<?, ?> build;
+
+	public BuildEventAction(final AbstractBuild<?, ?> build) {
+		super(null, null, BUILD_EVENT_URL);
+		this.build = build;
+	}
+
+	/**
+	 * Page of build events as JSON.
+	 */
+	@Jelly
+	public void doJson(final StaplerRequest request,
+			final StaplerResponse response) throws IOException {
+
+		final int offset = Math.max(0, parameter(request, "offset", 0));
+		final int limit = Math.max(0,
+				Math.min(PAGE_LIMIT, parameter(request, "limit", PAGE_LIMIT)));
+
+		final BuildEventLog.Page page = BuildEventLog.read(
+				BuildEventLog.file(build), offset, limit);
+
+		final JSONArray eventArray = new JSONArray();
+		eventArray.addAll(page.eventList());
+
+		final JSONObject json = new JSONObject();
+		json.put("offset", offset);
+		json.put("limit", limit);
+		json.put("total", page.total());
+		json.put("building", build.isBuilding());
+		json.put("events", eventArray);
+
+		response.setContentType("application/json;charset=UTF-8");
+		response.getWriter().append(json.toString()).close();
+
+	}
+
+	@Jelly
+	public AbstractBuild<?, ?> getBuild() {
+		return build;
+	}
+
+}
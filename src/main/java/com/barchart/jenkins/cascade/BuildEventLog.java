@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.model.AbstractBuild;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+
+/**
+ * Structured build events, one JSON object per line, in a file next to the
+ * build console log.
+ * <p>
+ * Callers never wait for disk: events are queued and appended in batches by
+ * a single writer thread; events are dropped when the queue is full.
+ *
+ * @author Andrei Pozolotin
+ */
+public class BuildEventLog {
+
+	/**
+	 * Queued event line.
+	 */
+	static class Entry {
+
+		final File file;
+
+		final String line;
+
+		Entry(final File file, final String line) {
+			this.file = file;
+			this.line = line;
+		}
+
+	}
+
+	/**
+	 * Event page with total line count.
+	 */
+	public static class Page {
+
+		private final List<JSONObject> eventList;
+
+		private final int total;
+
+		Page(final List<JSONObject> eventList, final int total) {
+			this.eventList = eventList;
+			this.total = total;
+		}
+
+		public List<JSONObject> eventList() {
+			return eventList;
+		}
+
+		/**
+		 * Number of events in the file.
+		 */
+		public int total() {
+			return total;
+		}
+
+	}
+
+	/**
+	 * Event file name in build folder.
+	 */
+	public static final String FILE_NAME = "cascade-events.jsonl";
+
+	private final static Logger log = Logger.getLogger(BuildEventLog.class
+			.getName());
+
+	/**
+	 * Maximum number of queued events.
+	 */
+	public static final int QUEUE_LIMIT = Integer.getInteger(
+			BuildEventLog.class.getName() + ".queueLimit", 10 * 1000);
+
+	private static final BlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>(
+			QUEUE_LIMIT);
+
+	private static final Thread writer = new Thread(new Runnable() {
+		public void run() {
+			while (true) {
+				try {
+					final List<Entry> batch = new ArrayList<Entry>();
+					batch.add(queue.take());
+					queue.drainTo(batch);
+					write(batch);
+				} catch (final InterruptedException e) {
+					return;
+				} catch (final Throwable e) {
+					log.log(Level.WARNING, "Event write failure", e);
+				}
+			}
+		}
+	}, BuildEventLog.class.getSimpleName());
+
+	static {
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queue event of the context build.
+	 *
+	 * @param pairs
+	 *            event fields as name, value, ...
+	 */
+	public static void emit(final BuildContext<?> context, final String type,
+			final Object... pairs) {
+		emit(context.build(), type, pairs);
+	}
+
+	/**
+	 * Queue build event.
+	 *
+	 * @param pairs
+	 *            event fields as name, value, ...
+	 */
+	public static void emit(final AbstractBuild<?, ?> build,
+			final String type, final Object... pairs) {
+
+		final JSONObject json = new JSONObject();
+		json.put("time", System.currentTimeMillis());
+		json.put("type", type);
+		for (int index = 0; index + 1 < pairs.length; index += 2) {
+			final Object value = pairs[index + 1];
+			final boolean isNative = value instanceof Number
+					|| value instanceof Boolean || value instanceof JSON;
+			json.put(String.valueOf(pairs[index]),
+					isNative ? value : String.valueOf(value));
+		}
+
+		if (!queue.offer(new Entry(file(build), json.toString()))) {
+			PluginMetrics.count("events.dropped");
+		}
+
+	}
+
+	/**
+	 * Event file of a build.
+	 */
+	public static File file(final AbstractBuild<?, ?> build) {
+		return new File(build.getRootDir(), FILE_NAME);
+	}
+
+	/**
+	 * Read a page of events.
+	 */
+	public static Page read(final File file, final int offset, final int limit)
+			throws IOException {
+
+		final List<JSONObject> eventList = new ArrayList<JSONObject>();
+
+		if (!file.exists()) {
+			return new Page(eventList, 0);
+		}
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "UTF-8"));
+
+		int total = 0;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				/** Skip partial line being written. */
+				if (!line.endsWith("}")) {
+					continue;
+				}
+				/** Skip damaged line, such as after a crash. */
+				final JSONObject event;
+				try {
+					event = JSONObject.fromObject(line);
+				} catch (final Exception e) {
+					log.fine("Event line ignored: " + line);
+					continue;
+				}
+				if (total >= offset && eventList.size() < limit) {
+					eventList.add(event);
+				}
+				total++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		return new Page(eventList, total);
+
+	}
+
+	/**
+	 * Append batch of events, one file open per build.
+	 */
+	static void write(final List<Entry> batch) {
+
+		final Map<File, List<String>> fileMap = new LinkedHashMap<File, List<String>>();
+		for (final Entry entry : batch) {
+			List<String> lineList = fileMap.get(entry.file);
+			if (lineList == null) {
+				lineList = new ArrayList<String>();
+				fileMap.put(entry.file, lineList);
+			}
+			lineList.add(entry.line);
+		}
+
+		for (final Map.Entry<File, List<String>> entry : fileMap.entrySet()) {
+			final File file = entry.getKey();
+			try {
+				final Writer output = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(file, true), "UTF-8"));
+				try {
+					for (final String line : entry.getValue()) {
+						output.write(line);
+						output.write('\n');
+					}
+				} finally {
+					output.close();
+				}
+			} catch (final Exception e) {
+				log.log(Level.WARNING, "Event write failure: " + file, e);
+			}
+		}
+
+	}
+
+	private BuildEventLog() {
+	}
+
+}
@@ -43,6 +43,11 @@ public class CascadeBuild extends Build<CascadeProject, CascadeBuild> implements
 
 	}
 
+	/**
+	 * First module which failed in this cascade, not persisted.
+	 */
+	private transient String failedModule;
+
 	private Set<CascadeResult> resultSet;
 
 	/** New build form UI. */
@@ -58,6 +63,13 @@ public class CascadeBuild extends Build<CascadeProject, CascadeBuild> implements
 		setup(project);
 	}
 
+	/**
+	 * First module which failed in this cascade build, or null.
+	 */
+	public String getFailedModule() {
+		return failedModule;
+	}
+
 	/**
 	 * Artifacts release in this cascade build.
 	 */
@@ -70,6 +82,15 @@ public class CascadeBuild extends Build<CascadeProject, CascadeBuild> implements
 		execute(new CascadeExecution());
 	}
 
+	/**
+	 * Remember deepest failed module, it fails first.
+	 */
+	public void setFailedModule(final String moduleName) {
+		if (failedModule == null) {
+			failedModule = moduleName;
+		}
+	}
+
 	/**
 	 * Required for legacy xstream serializer to work.
 	 */
@@ -58,7 +58,7 @@ public class CascadeLogic {
 			final BuildContext<CascadeBuild> context,
 			final ModuleName moduleName) {
 		for (final CascadeResult result : context.build().getResultSet()) {
-			if (moduleName(result.getArtifact()).equals(moduleName)) {
+			if (result.moduleName().equals(moduleName)) {
 				return true;
 			}
 		}
@@ -342,6 +342,8 @@ public class CascadeLogic {
 
 		context.log("Cascade started: " + projectName);
 
+		BuildEventLog.emit(context, "cascade.started", "project", projectName);
+
 		context.log("Check-out SCM.");
 		PluginScm.scmCheckout(context, project);
 
@@ -357,8 +359,17 @@ public class CascadeLogic {
 
 		final int level = 0;
 
+		final long timeStart = System.currentTimeMillis();
+
 		final Result result = processEntry(level + 1, context, memberName);
 
+		PluginMetrics.since("cascade.duration", timeStart);
+		PluginMetrics.count("cascade.result." + result);
+
+		BuildEventLog.emit(context, "cascade.finished", "project",
+				projectName, "result", result, "millis",
+				System.currentTimeMillis() - timeStart);
+
 		context.log("Cascade finished: " + result);
 
 		logResult(context);
@@ -371,12 +382,38 @@ public class CascadeLogic {
 	}
 
 	/**
-	 * Recursively release projects.
+	 * Recursively release projects, report node events.
 	 */
 	public static Result processEntry(final int level,
 			final BuildContext<CascadeBuild> context,
 			final ModuleName moduleName) throws Exception {
 
+		BuildEventLog.emit(context, "node.started", "module", moduleName,
+				"level", level);
+
+		final long timeStart = System.currentTimeMillis();
+
+		final Result result = processNode(level, context, moduleName);
+
+		if (isFailure(result)) {
+			context.build().setFailedModule(moduleName.toString());
+		}
+
+		BuildEventLog.emit(context, "node.finished", "module", moduleName,
+				"level", level, "result", result, "millis",
+				System.currentTimeMillis() - timeStart);
+
+		return result;
+
+	}
+
+	/**
+	 * Release a project, after its parent and dependencies.
+	 */
+	public static Result processNode(final int level,
+			final BuildContext<CascadeBuild> context,
+			final ModuleName moduleName) throws Exception {
+
 		context.log("---------------------");
 		context.log("Level: " + level);
 		context.log("Module: " + moduleName);
@@ -398,7 +435,9 @@ public class CascadeLogic {
 
 		context.log("Update before release.");
 		/** TODO parse poms */
+		final long timeUpdate = phaseStart(context, moduleName, "update");
 		scmRead(level, context, project);
+		phaseFinish(context, moduleName, "update", timeUpdate);
 
 		context.log("Verify project.");
 		if (isRelease(mavenModel(project))) {
@@ -415,155 +454,184 @@ public class CascadeLogic {
 		}
 
 		context.log("Process parent.");
-		PARENT: {
-
-			/** Update to next release, if present. */
-			{
-				final Parent parent = mavenParent(project);
-				if (parent == null) {
-					context.logTab("project has no parent");
-					break PARENT;
-				}
-				if (isRelease(parent)) {
-					context.logTab("parent is a release: " + parent);
-					break PARENT;
-				}
-				context.logTab("parent needs an update: " + parent);
-				if (isFailure(processMaven(context, project,
-						mavenParentGoals(context, mavenParentFilter(parent)),
-						true))) {
-					return Result.FAILURE;
+		final long timeParent = phaseStart(context, moduleName, "parent");
+		boolean parentDone = false;
+		try {
+			PARENT: {
+
+				/** Update to next release, if present. */
+				{
+					final Parent parent = mavenParent(project);
+					if (parent == null) {
+						context.logTab("project has no parent");
+						break PARENT;
+					}
+					if (isRelease(parent)) {
+						context.logTab("parent is a release: " + parent);
+						break PARENT;
+					}
+					context.logTab("parent needs an update: " + parent);
+					if (isFailure(processMaven(context, project,
+							mavenParentGoals(context,
+									mavenParentFilter(parent)), true))) {
+						return Result.FAILURE;
+					}
 				}
-			}
 
-			/** Need to release a parent, do it now. */
-			{
-				final Parent parent = mavenParent(project);
-				if (isRelease(parent)) {
-					context.logTab("parent updated: " + parent);
-					scmWrite(level, context, project);
-					break PARENT;
-				}
-				context.logTab("parent needs a release: " + parent);
-				final ModuleName parentName = moduleName(parent);
-				if (isFailure(processEntry(level + 1, context, parentName))) {
-					return Result.FAILURE;
+				/** Need to release a parent, do it now. */
+				{
+					final Parent parent = mavenParent(project);
+					if (isRelease(parent)) {
+						context.logTab("parent updated: " + parent);
+						scmWrite(level, context, project);
+						break PARENT;
+					}
+					context.logTab("parent needs a release: " + parent);
+					final ModuleName parentName = moduleName(parent);
+					if (isFailure(processEntry(level + 1, context,
+							parentName))) {
+						return Result.FAILURE;
+					}
 				}
-			}
 
-			/** Refresh parent after the release. */
-			{
-				final Parent parent = mavenParent(project);
-				if (isRelease(parent)) {
-					context.logTab("parent refreshed: " + parent);
-					scmWrite(level, context, project);
-					break PARENT;
+				/** Refresh parent after the release. */
+				{
+					final Parent parent = mavenParent(project);
+					if (isRelease(parent)) {
+						context.logTab("parent refreshed: " + parent);
+						scmWrite(level, context, project);
+						break PARENT;
+					}
+					context.logTab("parent needs a refresh: " + parent);
+					if (isFailure(processMaven(context, project,
+							mavenParentGoals(context,
+									mavenParentFilter(parent)), true))) {
+						return Result.FAILURE;
+					}
 				}
-				context.logTab("parent needs a refresh: " + parent);
-				if (isFailure(processMaven(context, project,
-						mavenParentGoals(context, mavenParentFilter(parent)),
-						true))) {
+
+				/** Verify parent version after release/update. */
+				{
+					final Parent parent = mavenParent(project);
+					if (isRelease(parent)) {
+						context.logTab("parent verified: " + parent);
+						scmWrite(level, context, project);
+						break PARENT;
+					}
+					context.logErr("can not verify parent:" + parent);
 					return Result.FAILURE;
 				}
-			}
 
-			/** Verify parent version after release/update. */
-			{
-				final Parent parent = mavenParent(project);
-				if (isRelease(parent)) {
-					context.logTab("parent verified: " + parent);
-					scmWrite(level, context, project);
-					break PARENT;
-				}
-				context.logErr("can not verify parent:" + parent);
-				return Result.FAILURE;
 			}
-
+			parentDone = true;
+		} finally {
+			phaseFinish(context, moduleName, "parent", timeParent, parentDone);
 		}
 
 		context.log("Process dependencies.");
-		DEPENDENCY: {
-
-			/** Dependency update. */
-			{
-				final List<Dependency> snapshots = mavenDependencies(project,
-						MATCH_SNAPSHOT);
-				if (snapshots.isEmpty()) {
-					context.logTab("project has no snapshot dependencies");
-					break DEPENDENCY;
-				}
-				context.logTab("dependencies need update: " + snapshots.size());
-				logDependency(context, snapshots);
-				if (isFailure(processMaven(
-						context,
-						project,
-						mavenDependencyGoals(context,
-								mavenDependencyFilter(snapshots)), true))) {
-					return Result.FAILURE;
+		final long timeDependency = phaseStart(context, moduleName,
+				"dependency");
+		boolean dependencyDone = false;
+		try {
+			DEPENDENCY: {
+
+				/** Dependency update. */
+				{
+					final List<Dependency> snapshots = mavenDependencies(
+							project, MATCH_SNAPSHOT);
+					if (snapshots.isEmpty()) {
+						context.logTab("project has no snapshot dependencies");
+						break DEPENDENCY;
+					}
+					context.logTab("dependencies need update: "
+							+ snapshots.size());
+					logDependency(context, snapshots);
+					if (isFailure(processMaven(
+							context,
+							project,
+							mavenDependencyGoals(context,
+									mavenDependencyFilter(snapshots)), true))) {
+						return Result.FAILURE;
+					}
 				}
-			}
 
-			/** Dependency release. */
-			{
-				final List<Dependency> snapshots = mavenDependencies(project,
-						MATCH_SNAPSHOT);
-				if (snapshots.isEmpty()) {
-					context.logTab("dependencies are updated");
+				/** Dependency release. */
+				{
+					final List<Dependency> snapshots = mavenDependencies(
+							project, MATCH_SNAPSHOT);
+					if (snapshots.isEmpty()) {
+						context.logTab("dependencies are updated");
+						scmWrite(level, context, project);
+						break DEPENDENCY;
+					}
 					scmWrite(level, context, project);
-					break DEPENDENCY;
+					context.logTab("dependencies need release: "
+							+ snapshots.size());
+					for (final Dependency dependency : snapshots) {
+						final ModuleName dependencyName = moduleName(
+								dependency);
+						if (isFailure(processEntry(level + 1, context,
+								dependencyName))) {
+							return Result.FAILURE;
+						}
+					}
 				}
-				scmWrite(level, context, project);
-				context.logTab("dependencies need release: " + snapshots.size());
-				for (final Dependency dependency : snapshots) {
-					final ModuleName dependencyName = moduleName(dependency);
-					if (isFailure(processEntry(level + 1, context,
-							dependencyName))) {
+
+				/** Dependency refresh. */
+				{
+					final List<Dependency> snapshots = mavenDependencies(
+							project, MATCH_SNAPSHOT);
+					if (snapshots.isEmpty()) {
+						context.logTab("dependencies are released");
+						scmWrite(level, context, project);
+						break DEPENDENCY;
+					}
+					context.logTab("dependencies need refresh: "
+							+ snapshots.size());
+					logDependency(context, snapshots);
+					if (isFailure(processMaven(
+							context,
+							project,
+							mavenDependencyGoals(context,
+									mavenDependencyFilter(snapshots)), true))) {
 						return Result.FAILURE;
 					}
 				}
-			}
 
-			/** Dependency refresh. */
-			{
-				final List<Dependency> snapshots = mavenDependencies(project,
-						MATCH_SNAPSHOT);
-				if (snapshots.isEmpty()) {
-					context.logTab("dependencies are released");
-					scmWrite(level, context, project);
-					break DEPENDENCY;
-				}
-				context.logTab("dependencies need refresh: " + snapshots.size());
-				logDependency(context, snapshots);
-				if (isFailure(processMaven(
-						context,
-						project,
-						mavenDependencyGoals(context,
-								mavenDependencyFilter(snapshots)), true))) {
+				/** Verify dependency. */
+				{
+					final List<Dependency> snapshots = mavenDependencies(
+							project, MATCH_SNAPSHOT);
+					if (snapshots.isEmpty()) {
+						context.logTab("dependencies are verified");
+						scmWrite(level, context, project);
+						break DEPENDENCY;
+					}
+					context.logErr("failed to verify dependency: "
+							+ snapshots.size());
+					logDependency(context, snapshots);
 					return Result.FAILURE;
 				}
-			}
 
-			/** Verify dependency. */
-			{
-				final List<Dependency> snapshots = mavenDependencies(project,
-						MATCH_SNAPSHOT);
-				if (snapshots.isEmpty()) {
-					context.logTab("dependencies are verified");
-					scmWrite(level, context, project);
-					break DEPENDENCY;
-				}
-				context.logErr("failed to verify dependency: "
-						+ snapshots.size());
-				logDependency(context, snapshots);
-				return Result.FAILURE;
 			}
-
+			dependencyDone = true;
+		} finally {
+			phaseFinish(context, moduleName, "dependency", timeDependency,
+					dependencyDone);
 		}
 
 		context.log("Release project.");
-		if (isFailure(processMaven(context, project,
-				mavenReleaseGoals(context), true))) {
-			return Result.FAILURE;
+		final long timeRelease = phaseStart(context, moduleName, "release");
+		boolean releaseDone = false;
+		try {
+			if (isFailure(processMaven(context, project,
+					mavenReleaseGoals(context), true))) {
+				return Result.FAILURE;
+			}
+			releaseDone = true;
+		} finally {
+			phaseFinish(context, moduleName, "release", timeRelease,
+					releaseDone);
 		}
 
 		context.log("Update after release.");
@@ -586,12 +654,23 @@ public class CascadeLogic {
 
 		context.logTab("module: " + project.getRootModule().getName());
 
+		if (MavenDaemon.isDaemon(context, project, actionList)) {
+			return MavenDaemon.process(context, project, actionList);
+		}
+
 		actionList.add(new CascadeLogicAction());
 
 		logActions(context, actionList);
 
 		final MemberBuildCause cause = cascadeCause(context);
 
+		PluginMetrics.count("maven.invocations");
+
+		BuildEventLog.emit(context, "maven.scheduled", "project",
+				project.getName(), "blocking", isBlocking);
+
+		final long timeStart = System.currentTimeMillis();
+
 		final QueueTaskFuture<MavenModuleSetBuild> buildFuture = project
 				.scheduleBuild2(0, cause, actionList);
 
@@ -612,6 +691,9 @@ public class CascadeLogic {
 
 		context.logTab("console: " + build.getAbsoluteUrl() + "console");
 
+		BuildEventLog.emit(context, "maven.started", "project",
+				project.getName(), "build", build.getUrl());
+
 		/** Block till build complete. */
 		buildFuture.get();
 
@@ -619,6 +701,13 @@ public class CascadeLogic {
 
 		context.logTab("result: " + result);
 
+		PluginMetrics.since("maven.duration", timeStart);
+		PluginMetrics.count("maven.result." + result);
+
+		BuildEventLog.emit(context, "maven.completed", "project",
+				project.getName(), "build", build.getUrl(), "result", result,
+				"millis", System.currentTimeMillis() - timeStart);
+
 		if (isSuccess(result)) {
 			storeBuildResult(context, build);
 		}
@@ -627,6 +716,32 @@ public class CascadeLogic {
 
 	}
 
+	/**
+	 * Report phase finish, successful or not, see {@link #phaseStart}.
+	 */
+	static void phaseFinish(final BuildContext<CascadeBuild> context,
+			final ModuleName moduleName, final String phase,
+			final long timeStart, final boolean isSuccess) {
+		final long millis = System.currentTimeMillis() - timeStart;
+		final Result outcome = isSuccess ? Result.SUCCESS : Result.FAILURE;
+		PluginMetrics.update("cascade.phase." + phase, millis);
+		PluginMetrics.count("cascade.phase." + phase + "." + outcome);
+		BuildEventLog.emit(context, "phase.finished", "module", moduleName,
+				"phase", phase, "outcome", outcome, "millis", millis);
+	}
+
+	/**
+	 * Report phase start.
+	 * 
+	 * @return phase start time
+	 */
+	static long phaseStart(final BuildContext<CascadeBuild> context,
+			final ModuleName moduleName, final String phase) {
+		BuildEventLog.emit(context, "phase.started", "module", moduleName,
+				"phase", phase);
+		return System.currentTimeMillis();
+	}
+
 	/**
 	 * Perform optional update.
 	 */
@@ -634,12 +749,23 @@ public class CascadeLogic {
 			final BuildContext<CascadeBuild> context,
 			final MavenModuleSet project) throws Exception {
 
-		if (context.layoutOptions().getUseSharedWorkspace() && level > 1) {
+		/** Member worktree is private, same as individual workspace. */
+		if (context.layoutOptions().getUseSharedWorkspace()
+				&& !PluginScm.isWorktree(context.layoutOptions()) && level > 1) {
 			context.logTab("scm: skip update for shared workspace");
 			return;
 		}
 
-		PluginScm.scmUpdate(context, project);
+		final PluginScmSession session = new PluginScmSession();
+
+		session.update();
+
+		final List<PluginScmSession.Step> report = session.run(context,
+				project);
+
+		for (final PluginScmSession.Step step : report) {
+			context.logTab("scm: " + step);
+		}
 
 	}
 
@@ -652,14 +778,23 @@ public class CascadeLogic {
 
 		final String pattern = project.getRootPOM(null);
 
-		PluginScm.scmCommit(context, project, pattern);
+		final PluginScmSession session = new PluginScmSession();
 
-		if (!context.cascadeOptions().getShouldPushUpdates()) {
+		session.commit(pattern);
+
+		if (context.cascadeOptions().getShouldPushUpdates()) {
+			session.push();
+			session.verify();
+		} else {
 			context.logTab("scm: skip checkin till cascade finish");
-			return;
 		}
 
-		PluginScm.scmCheckin(context, project);
+		final List<PluginScmSession.Step> report = session.run(context,
+				project);
+
+		for (final PluginScmSession.Step step : report) {
+			context.logTab("scm: " + step);
+		}
 
 	}
 
@@ -693,7 +828,8 @@ public class CascadeLogic {
 		final Artifact artifact = mavenArtifact(mavenModel(pomFile));
 		final String buildURL = build.getAbsoluteUrl();
 
-		final CascadeResult result = new CascadeResult(artifact, buildURL);
+		final CascadeResult result = new CascadeResult(artifact, buildURL,
+				build.getTimeInMillis(), build.getDuration());
 
 		context.build().getResultSet().add(result);
 
@@ -8,6 +8,7 @@
 package com.barchart.jenkins.cascade;
 
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Descriptor;
 
@@ -58,6 +59,11 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 	private static final Logger log = Logger.getLogger(CascadeOptions.class
 			.getName());
 
+	/**
+	 * Maven daemon client command.
+	 */
+	public static final String MAVEN_DAEMON_COMMAND = "mvnd";
+
 	/**
 	 * Perform SCM:
 	 * 
@@ -123,6 +129,7 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 	public static final String NAME = "cascadeOptions";
 
 	private String mavenCommitGoals = MAVEN_COMMIT_GOALS;
+	private String mavenDaemonCommand = MAVEN_DAEMON_COMMAND;
 
 	private String mavenDependencyGoals = MAVEN_DEPENDENCY_GOALS;
 	private String mavenParentGoals = MAVEN_PARENT_GOALS;
@@ -132,6 +139,7 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 	private boolean shouldLogActions = false;
 	private boolean shouldLogDependency = false;
 	private boolean shouldPushUpdates = false;
+	private boolean useMavenDaemon = false;
 
 	public CascadeOptions() {
 	}
@@ -147,7 +155,10 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 			//
 			final boolean shouldLogActions, //
 			final boolean shouldLogDependency, //
-			final boolean shouldPushUpdates //
+			final boolean shouldPushUpdates, //
+			//
+			final boolean useMavenDaemon, //
+			final String mavenDaemonCommand //
 	//
 	) {
 
@@ -161,6 +172,9 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 		this.shouldLogDependency = shouldLogDependency;
 		this.shouldPushUpdates = shouldPushUpdates;
 
+		this.useMavenDaemon = useMavenDaemon;
+		this.mavenDaemonCommand = mavenDaemonCommand;
+
 	}
 
 	@Override
@@ -173,6 +187,14 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 		return mavenCommitGoals;
 	}
 
+	@Jelly
+	public String getMavenDaemonCommand() {
+		if (Util.fixEmptyAndTrim(mavenDaemonCommand) == null) {
+			return MAVEN_DAEMON_COMMAND;
+		}
+		return mavenDaemonCommand;
+	}
+
 	@Jelly
 	public String getMavenDependencyGoals() {
 		return mavenDependencyGoals;
@@ -208,4 +230,9 @@ public class CascadeOptions extends AbstractDescribableImpl<CascadeOptions>
 		return shouldPushUpdates;
 	}
 
+	@Jelly
+	public boolean getUseMavenDaemon() {
+		return useMavenDaemon;
+	}
+
 }
@@ -7,22 +7,72 @@
  */
 package com.barchart.jenkins.cascade;
 
+import hudson.Util;
+import hudson.maven.ModuleName;
+
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
 
 /**
  * Persisted cascade result.
- * 
+ * <p>
+ * Stored as plain artifact coordinates; full maven artifact is created on
+ * demand. Legacy records with persisted artifact are migrated on load.
+ *
  * @author Andrei Pozolotin
  */
 public class CascadeResult implements Comparable<CascadeResult> {
 
-	private final Artifact artifact;
+	/**
+	 * Legacy persisted artifact, only present while loading old records.
+	 */
+	private Artifact artifact;
+
+	private String artifactId;
 
 	private final String buildURL;
 
-	public CascadeResult(final Artifact artifact, final String buildURL) {
-		this.artifact = artifact;
+	/**
+	 * Maven artifact created on demand.
+	 */
+	private transient Artifact details;
+
+	private String groupId;
+
+	/**
+	 * Member build duration, millis.
+	 */
+	private long millis;
+
+	/**
+	 * Member build start time, millis.
+	 */
+	private long time;
+
+	private String type;
+
+	private String version;
+
+	public CascadeResult(final Artifact artifact, final String buildURL,
+			final long time, final long millis) {
+		this.groupId = artifact.getGroupId();
+		this.artifactId = artifact.getArtifactId();
+		this.version = artifact.getVersion();
+		this.type = artifact.getType();
 		this.buildURL = buildURL;
+		this.time = time;
+		this.millis = millis;
+	}
+
+	public int compareTo(final CascadeResult that) {
+		int compare = this.groupId.compareTo(that.groupId);
+		if (compare == 0) {
+			compare = this.artifactId.compareTo(that.artifactId);
+		}
+		if (compare == 0) {
+			compare = this.version.compareTo(that.version);
+		}
+		return compare;
 	}
 
 	/**
@@ -30,7 +80,16 @@ public class CascadeResult implements Comparable<CascadeResult> {
 	 */
 	@Jelly
 	public Artifact getArtifact() {
-		return artifact;
+		if (details == null) {
+			details = new DefaultArtifact(groupId, artifactId, version, null,
+					type, "", null);
+		}
+		return details;
+	}
+
+	@Jelly
+	public String getArtifactId() {
+		return artifactId;
 	}
 
 	/**
@@ -41,13 +100,65 @@ public class CascadeResult implements Comparable<CascadeResult> {
 		return buildURL;
 	}
 
-	@Override
-	public String toString() {
-		return getArtifact() + " @ " + getBuildURL();
+	/**
+	 * Member build duration, human readable.
+	 */
+	@Jelly
+	public String getDurationText() {
+		return Util.getTimeSpanString(millis);
 	}
 
-	public int compareTo(final CascadeResult that) {
-		return this.getArtifact().compareTo(that.getArtifact());
+	@Jelly
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * Member build duration, millis; 0 for legacy records.
+	 */
+	@Jelly
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * Member build start time, millis; 0 for legacy records.
+	 */
+	@Jelly
+	public long getTime() {
+		return time;
+	}
+
+	@Jelly
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Jenkins module name of the released artifact.
+	 */
+	public ModuleName moduleName() {
+		return new ModuleName(groupId, artifactId);
+	}
+
+	/**
+	 * Migrate legacy record.
+	 */
+	protected Object readResolve() {
+		if (artifact != null) {
+			groupId = artifact.getGroupId();
+			artifactId = artifact.getArtifactId();
+			version = artifact.getVersion();
+			type = artifact.getType();
+			artifact = null;
+		}
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return groupId + ":" + artifactId + ":" + version + " @ "
+				+ getBuildURL();
 	}
 
 }
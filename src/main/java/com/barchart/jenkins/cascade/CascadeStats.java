@@ -0,0 +1,536 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.util.AtomicFileWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Per-family append-only cascade statistics, one JSON line per finished
+ * cascade build.
+ * <p>
+ * Trends are computed from this file only, w/o loading build records. File
+ * is compacted to recent records on append; readers take no lock, partial
+ * lines are ignored.
+ *
+ * @author Andrei Pozolotin
+ */
+public class CascadeStats {
+
+	/**
+	 * Module name with a count and average build duration.
+	 */
+	public static class Entry {
+
+		private final int count;
+
+		private final long millis;
+
+		private final String name;
+
+		Entry(final String name, final int count) {
+			this(name, count, 0);
+		}
+
+		Entry(final String name, final int count, final long millis) {
+			this.name = name;
+			this.count = count;
+			this.millis = millis;
+		}
+
+		@Jelly
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * Average module build duration, human readable.
+		 */
+		@Jelly
+		public String getDurationText() {
+			return Util.getTimeSpanString(millis);
+		}
+
+		/**
+		 * Average module build duration, millis.
+		 */
+		@Jelly
+		public long getMillis() {
+			return millis;
+		}
+
+		@Jelly
+		public String getName() {
+			return name;
+		}
+
+	}
+
+	/**
+	 * Trends of recent cascade builds.
+	 */
+	public static class Summary {
+
+		private int count;
+
+		private final long[] durationArray;
+
+		private final List<Entry> failureList;
+
+		private final List<Entry> releaseList;
+
+		private final List<Entry> slowestList;
+
+		private int successCount;
+
+		Summary(final List<JSONObject> recordList) {
+
+			final Map<String, Integer> releaseMap = new HashMap<String, Integer>();
+			final Map<String, Integer> failureMap = new HashMap<String, Integer>();
+			final Map<String, Integer> moduleCountMap = new HashMap<String, Integer>();
+			final Map<String, Long> moduleMillisMap = new HashMap<String, Long>();
+
+			durationArray = new long[recordList.size()];
+
+			for (final JSONObject record : recordList) {
+
+				durationArray[count++] = record.optLong("millis");
+
+				if (Result.SUCCESS.toString().equals(record.optString("result"))) {
+					successCount++;
+				}
+
+				final JSONArray released = record.optJSONArray("released");
+				if (released != null) {
+					for (int index = 0; index < released.size(); index++) {
+						increment(releaseMap, released.getString(index));
+					}
+				}
+
+				final String failed = record.optString("failed", "");
+				if (failed.length() > 0) {
+					increment(failureMap, failed);
+				}
+
+				final JSONObject modules = record.optJSONObject("modules");
+				if (modules != null) {
+					final Iterator<?> iterator = modules.keys();
+					while (iterator.hasNext()) {
+						final String name = (String) iterator.next();
+						increment(moduleCountMap, name);
+						final Long millis = moduleMillisMap.get(name);
+						moduleMillisMap.put(name, (millis == null ? 0 : millis)
+								+ modules.optLong(name));
+					}
+				}
+
+			}
+
+			Arrays.sort(durationArray);
+
+			releaseList = top(releaseMap);
+			failureList = top(failureMap);
+			slowestList = slowest(moduleCountMap, moduleMillisMap);
+
+		}
+
+		/**
+		 * Number of cascade builds in the summary.
+		 */
+		@Jelly
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * Modules most often failing a cascade.
+		 */
+		@Jelly
+		public List<Entry> getFailureList() {
+			return failureList;
+		}
+
+		/**
+		 * Modules most often released.
+		 */
+		@Jelly
+		public List<Entry> getReleaseList() {
+			return releaseList;
+		}
+
+		/**
+		 * Modules with longest average member build duration.
+		 */
+		@Jelly
+		public List<Entry> getSlowestList() {
+			return slowestList;
+		}
+
+		/**
+		 * Successful builds, percent.
+		 */
+		@Jelly
+		public int getSuccessRate() {
+			return count == 0 ? 0 : successCount * 100 / count;
+		}
+
+		/**
+		 * Build duration percentile, millis.
+		 */
+		@Jelly
+		public long percentile(final int percent) {
+			if (durationArray.length == 0) {
+				return 0;
+			}
+			final int index = (int) Math.ceil(percent / 100.0
+					* durationArray.length) - 1;
+			return durationArray[Math.max(0,
+					Math.min(index, durationArray.length - 1))];
+		}
+
+		/**
+		 * Build duration percentile, human readable.
+		 */
+		@Jelly
+		public String percentileText(final int percent) {
+			return Util.getTimeSpanString(percentile(percent));
+		}
+
+		public JSONObject toJSON() {
+			final JSONObject json = new JSONObject();
+			json.put("count", count);
+			json.put("successRate", getSuccessRate());
+			final JSONObject duration = new JSONObject();
+			for (final int percent : new int[] { 50, 90, 99, 100 }) {
+				duration.put("p" + percent, percentile(percent));
+			}
+			json.put("duration", duration);
+			json.put("released", toJSON(releaseList));
+			json.put("failed", toJSON(failureList));
+			final JSONObject slowest = new JSONObject();
+			for (final Entry entry : slowestList) {
+				slowest.put(entry.getName(), entry.getMillis());
+			}
+			json.put("slowest", slowest);
+			return json;
+		}
+
+		static JSONObject toJSON(final List<Entry> entryList) {
+			final JSONObject json = new JSONObject();
+			for (final Entry entry : entryList) {
+				json.put(entry.getName(), entry.getCount());
+			}
+			return json;
+		}
+
+	}
+
+	/**
+	 * Append statistics record on cascade build completion.
+	 */
+	@Extension
+	public static class Tracker extends RunListener<CascadeBuild> {
+
+		public Tracker() {
+			super(CascadeBuild.class);
+		}
+
+		@Override
+		public void onCompleted(final CascadeBuild build,
+				final TaskListener listener) {
+			try {
+				final String familyID = ProjectIdentity.familyID(build
+						.getProject());
+				if (familyID == null) {
+					return;
+				}
+				append(familyID, record(build));
+			} catch (final Exception e) {
+				log.log(Level.WARNING, "Stats append failure: " + build, e);
+			}
+		}
+
+	}
+
+	private final static Logger log = Logger.getLogger(CascadeStats.class
+			.getName());
+
+	/**
+	 * Number of recent records used for trends.
+	 */
+	public static final int RECORD_LIMIT = Integer.getInteger(
+			CascadeStats.class.getName() + ".recordLimit", 1000);
+
+	/**
+	 * Number of records which triggers compaction to {@link #RECORD_LIMIT}.
+	 */
+	public static final int COMPACT_LIMIT = 2 * RECORD_LIMIT;
+
+	/**
+	 * Guards append and compaction; reads are not locked.
+	 */
+	private static final Object APPEND_LOCK = new Object();
+
+	/**
+	 * Record count of family files, known after first append.
+	 */
+	private static final Map<String, Integer> COUNT_MAP = new HashMap<String, Integer>();
+
+	/**
+	 * Number of modules in top lists.
+	 */
+	public static final int TOP_LIMIT = Integer.getInteger(
+			CascadeStats.class.getName() + ".topLimit", 20);
+
+	/**
+	 * Append record to family statistics; compact file when it holds
+	 * {@link #COMPACT_LIMIT} records.
+	 */
+	public static void append(final String familyID, final JSONObject record)
+			throws IOException {
+		synchronized (APPEND_LOCK) {
+
+			final File file = file(familyID);
+			file.getParentFile().mkdirs();
+
+			Integer count = COUNT_MAP.get(familyID);
+			if (count == null) {
+				count = count(file);
+			}
+
+			final Writer output = new OutputStreamWriter(new FileOutputStream(
+					file, true), "UTF-8");
+			try {
+				output.write(record.toString());
+				output.write('\n');
+			} finally {
+				output.close();
+			}
+			count++;
+
+			if (count >= COMPACT_LIMIT) {
+				count = compact(familyID);
+			}
+
+			COUNT_MAP.put(familyID, count);
+
+		}
+	}
+
+	/**
+	 * Rewrite family file with most recent records, replacing it at once so
+	 * readers see either file.
+	 * 
+	 * @return record count after compaction
+	 */
+	static int compact(final String familyID) throws IOException {
+		final List<JSONObject> recordList = read(familyID);
+		final AtomicFileWriter output = new AtomicFileWriter(file(familyID),
+				"UTF-8");
+		try {
+			for (final JSONObject record : recordList) {
+				output.write(record.toString());
+				output.write('\n');
+			}
+			output.commit();
+		} finally {
+			output.abort();
+		}
+		return recordList.size();
+	}
+
+	/**
+	 * Number of lines in a family file.
+	 */
+	static int count(final File file) throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+		int count = 0;
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "UTF-8"));
+		try {
+			while (reader.readLine() != null) {
+				count++;
+			}
+		} finally {
+			reader.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Statistics file of a family.
+	 */
+	public static File file(final String familyID) {
+		return new File(Jenkins.getInstance().getRootDir(),
+				PluginConstants.PLUGIN_ID + "-stats/" + familyID + ".jsonl");
+	}
+
+	static void increment(final Map<String, Integer> map, final String name) {
+		final Integer count = map.get(name);
+		map.put(name, count == null ? 1 : count + 1);
+	}
+
+	/**
+	 * Most recent records of a family, oldest first.
+	 */
+	public static List<JSONObject> read(final String familyID)
+			throws IOException {
+
+		final LinkedList<JSONObject> recordList = new LinkedList<JSONObject>();
+
+		final File file = file(familyID);
+		if (!file.exists()) {
+			return recordList;
+		}
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0) {
+					continue;
+				}
+				try {
+					recordList.add(JSONObject.fromObject(line));
+				} catch (final Exception e) {
+					log.fine("Stats line ignored: " + line);
+					continue;
+				}
+				if (recordList.size() > RECORD_LIMIT) {
+					recordList.removeFirst();
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return recordList;
+
+	}
+
+	/**
+	 * Statistics record of a finished cascade build.
+	 */
+	public static JSONObject record(final CascadeBuild build) {
+
+		final JSONArray released = new JSONArray();
+		final JSONObject modules = new JSONObject();
+		for (final CascadeResult result : build.getResultSet()) {
+			final String name = result.getGroupId() + ":"
+					+ result.getArtifactId();
+			released.add(name);
+			/** Legacy results have no duration. */
+			if (result.getMillis() > 0) {
+				modules.put(name, result.getMillis());
+			}
+		}
+
+		final JSONObject record = new JSONObject();
+		record.put("time", build.getTimeInMillis());
+		record.put("build", build.getNumber());
+		record.put("result", String.valueOf(build.getResult()));
+		record.put("millis", build.getDuration());
+		record.put("released", released);
+		record.put("modules", modules);
+		record.put("failed", build.getFailedModule() == null ? "" : build
+				.getFailedModule());
+
+		return record;
+
+	}
+
+	/**
+	 * Modules by average duration, longest first, up to the limit.
+	 */
+	static List<Entry> slowest(final Map<String, Integer> countMap,
+			final Map<String, Long> millisMap) {
+		final List<Entry> entryList = new ArrayList<Entry>();
+		for (final Map.Entry<String, Integer> entry : countMap.entrySet()) {
+			final int count = entry.getValue();
+			final long millis = millisMap.get(entry.getKey()) / count;
+			entryList.add(new Entry(entry.getKey(), count, millis));
+		}
+		Collections.sort(entryList, new Comparator<Entry>() {
+			public int compare(final Entry one, final Entry two) {
+				if (one.millis != two.millis) {
+					return one.millis > two.millis ? -1 : 1;
+				}
+				return one.name.compareTo(two.name);
+			}
+		});
+		if (entryList.size() > TOP_LIMIT) {
+			return new ArrayList<Entry>(entryList.subList(0, TOP_LIMIT));
+		}
+		return entryList;
+	}
+
+	/**
+	 * Trends of recent family cascades.
+	 */
+	public static Summary summary(final String familyID) throws IOException {
+		return new Summary(read(familyID));
+	}
+
+	/**
+	 * Entries by count, largest first, up to the limit.
+	 */
+	static List<Entry> top(final Map<String, Integer> map) {
+		final List<Entry> entryList = new ArrayList<Entry>();
+		for (final Map.Entry<String, Integer> entry : map.entrySet()) {
+			entryList.add(new Entry(entry.getKey(), entry.getValue()));
+		}
+		Collections.sort(entryList, new Comparator<Entry>() {
+			public int compare(final Entry one, final Entry two) {
+				if (one.count != two.count) {
+					return one.count > two.count ? -1 : 1;
+				}
+				return one.name.compareTo(two.name);
+			}
+		});
+		if (entryList.size() > TOP_LIMIT) {
+			return new ArrayList<Entry>(entryList.subList(0, TOP_LIMIT));
+		}
+		return entryList;
+	}
+
+	private CascadeStats() {
+	}
+
+}
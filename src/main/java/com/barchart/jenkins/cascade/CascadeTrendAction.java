@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import java.io.IOException;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Cascade family trends from {@link CascadeStats}.
+ * <p>
+ * Usage: <code>.../cascade-trends/</code> or
+ * <code>.../cascade-trends/json</code>
+ *
+ * @author Andrei Pozolotin
+ */
+public class CascadeTrendAction extends AbstractAction {
+
+	private final ProjectIdentity identity;
+
+	public CascadeTrendAction( //
+			final ProjectIdentity identity //
+	) {
+		super(TREND_ACTION_NAME, TREND_ACTION_ICON, TREND_ACTION_URL);
+		this.identity = identity;
+	}
+
+	/**
+	 * Family trends as JSON.
+	 */
+	@Jelly
+	public void doJson(final StaplerRequest request,
+			final StaplerResponse response) throws IOException {
+
+		final CascadeStats.Summary summary = getSummary();
+
+		response.setContentType("application/json;charset=UTF-8");
+		response.getWriter().append(summary.toJSON().toString()).close();
+
+	}
+
+	@Jelly
+	public ProjectIdentity getIdentity() {
+		return identity;
+	}
+
+	/**
+	 * Trends of recent family cascades.
+	 */
+	@Jelly
+	public CascadeStats.Summary getSummary() throws IOException {
+		return CascadeStats.summary(identity.getFamilyID());
+	}
+
+}
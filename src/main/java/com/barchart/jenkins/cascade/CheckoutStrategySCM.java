@@ -85,22 +85,89 @@ public class CheckoutStrategySCM extends SCMCheckoutStrategy implements
 			return;
 		}
 
+		if (PluginScm.isWorktree(context.layoutOptions())
+				&& identity.role() == ProjectRole.MEMBER) {
+			context.log("Using member worktree.");
+			context.log("Perform worktree checkout.");
+			final MavenModuleSet project = (MavenModuleSet) context.build()
+					.getProject();
+			final WorkspaceLock lock = WorkspaceLock.ensure(identity
+					.getFamilyID());
+			/** Fetch and worktree create change shared repository. */
+			final String commit;
+			final WorkspaceLock.Hold writeHold = lock.write();
+			context.logTab(writeHold.toString());
+			try {
+				commit = PluginScm.scmWorktreeFetch(context, project);
+			} finally {
+				context.logTab("write lock hold: " + writeHold.release()
+						+ " ms");
+			}
+			/** Worktree checkout does not change layout working tree. */
+			final String changeLog;
+			final WorkspaceLock.Hold readHold = lock.read();
+			context.logTab(readHold.toString());
+			try {
+				changeLog = PluginScm.scmWorktreeCheckout(context, project,
+						commit, PluginScm.scmWorktreePrevious(context, project));
+			} finally {
+				context.logTab("read lock hold: " + readHold.release()
+						+ " ms");
+			}
+			PluginScm.scmWorktreeRecord(context, project, commit, changeLog);
+			return;
+		}
+
 		if (context.layoutOptions().getUseSharedWorkspace()) {
 			context.log("Using shared workspace.");
 			context.log("Perform synchronized checkout.");
-			synchronized (layoutProject) {
+			final WorkspaceLock lock = WorkspaceLock.ensure(identity
+					.getFamilyID());
+			final WorkspaceLock.Hold hold = lock.write();
+			context.logTab(hold.toString());
+			try {
 				super.checkout(execution);
+			} finally {
+				context.logTab("write lock hold: " + hold.release() + " ms");
 			}
 			return;
 		} else {
 			context.log("Using individual workspace.");
+			final boolean isSparse = isSparseCheckout(context, identity);
+			final MavenModuleSet project = isSparse ? (MavenModuleSet) context
+					.build().getProject() : null;
+			final String sparsePaths = context.layoutOptions()
+					.getSparseCheckoutPaths();
+			if (isSparse) {
+				context.log("Prepare sparse checkout.");
+				PluginScm.scmSparsePrepare(context, project, sparsePaths);
+			}
 			context.log("Perform default checkout.");
 			super.checkout(execution);
+			if (isSparse) {
+				context.log("Perform sparse checkout.");
+				PluginScm.scmSparseCheckout(context, project, sparsePaths);
+			}
 			return;
 		}
 
 	}
 
+	/**
+	 * Sparse checkout is applicable to member projects with private
+	 * workspace.
+	 */
+	public static boolean isSparseCheckout(final BuildContext<?> context,
+			final ProjectIdentity identity) {
+		if (identity.role() != ProjectRole.MEMBER) {
+			return false;
+		}
+		if (!(context.build().getProject() instanceof MavenModuleSet)) {
+			return false;
+		}
+		return context.layoutOptions().getUseSparseCheckout();
+	}
+
 	@Override
 	public TheDescriptor getDescriptor() {
 		return META;
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+/**
+ * Show icon for a project sync build.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class DoSyncBadge extends AbstractBadge {
+
+	public DoSyncBadge() {
+		super("Sync", "children.png");
+	}
+
+}
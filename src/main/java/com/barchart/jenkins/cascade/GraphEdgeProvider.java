@@ -8,7 +8,6 @@
 package com.barchart.jenkins.cascade;
 
 import static com.barchart.jenkins.cascade.PluginUtilities.*;
-import hudson.maven.ModuleName;
 import hudson.maven.MavenModuleSet;
 import hudson.model.AbstractProject;
 import hudson.plugins.depgraph_view.model.graph.Edge;
@@ -20,9 +19,6 @@ import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
-import org.apache.maven.model.Dependency;
-import org.apache.maven.model.Parent;
-
 /**
  * Provide cascade project graph dependency edge discovery.
  * 
@@ -58,58 +54,32 @@ public class GraphEdgeProvider implements EdgeProvider {
 				return edgeList;
 			}
 
-			final MavenModuleSet currentProject = (MavenModuleSet) project;
-
-			/** Process parent. */
-			final Parent parent = mavenParent(currentProject);
-			if (parent != null) {
-
-				final ModuleName parentName = moduleName(parent);
-
-				final MavenModuleSet parentProject = identity
-						.memberProject(parentName);
-
-				/** Parent is not part of cascade. */
-				if (parentProject != null) {
-
-					final GraphEdge edge = new GraphEdge(parentProject,
-							currentProject);
-
-					if (isSnapshot(parent)) {
-						edge.setColor("red");
-					} else {
-						edge.setColor("chocolate");
-					}
-
-					edgeList.add(edge);
-				}
+			/** Cached family graph, no model parsing here. */
+			final GraphFamilyCache.Node node = GraphFamilyCache.family(
+					identity).node(project.getName());
 
+			/** Member model is not available. */
+			if (node == null) {
+				return edgeList;
 			}
 
-			/** Process dependencies. */
-			final List<Dependency> dependencyList = mavenDependencies(
-					currentProject, MATCH_ANY);
-
-			for (final Dependency dependency : dependencyList) {
+			final MavenModuleSet currentProject = (MavenModuleSet) project;
 
-				final ModuleName dependencyName = moduleName(dependency);
+			/** Process parent and dependencies. */
+			for (final GraphFamilyCache.Link link : node.linkList()) {
 
-				final MavenModuleSet dependencyProject = identity
-						.memberProject(dependencyName);
+				final MavenModuleSet sourceProject = mavenProject(link
+						.source());
 
-				/** Dependency is not part of cascade. */
-				if (dependencyProject == null) {
+				/** Project removed after snapshot. */
+				if (sourceProject == null) {
 					continue;
 				}
 
-				final GraphEdge edge = new GraphEdge(dependencyProject,
+				final GraphEdge edge = new GraphEdge(sourceProject,
 						currentProject);
 
-				if (isSnapshot(dependency)) {
-					edge.setColor("blue");
-				} else {
-					edge.setColor("forestgreen");
-				}
+				edge.setColor(link.color());
 
 				edgeList.add(edge);
 
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.maven.MavenModuleSet;
+
+import java.io.IOException;
+import java.util.Map;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Family member dependency graph as JSON, for client side rendering.
+ * <p>
+ * Usage: <code>.../cascade-graph/json[?since=version]</code>
+ * <p>
+ * Full response lists all member nodes and edges. Delta response, when
+ * "since" snapshot is still known, lists only added or changed nodes with
+ * their incoming edges, and names of removed nodes; clients replace
+ * incoming edges of listed nodes. Nodes carry server side layout position,
+ * so a node moved by a graph change is listed as changed.
+ *
+ * @author Andrei Pozolotin
+ */
+public class GraphFamilyAction extends AbstractAction {
+
+	/**
+	 * Incoming edges of a node.
+	 */
+	public static JSONArray edgeArray(final GraphFamilyCache.Node node) {
+		final JSONArray array = new JSONArray();
+		for (final GraphFamilyCache.Link link : node.linkList()) {
+			final JSONObject json = new JSONObject();
+			json.put("source", link.source());
+			json.put("target", link.target());
+			json.put("type", link.isParent() ? "parent" : "dependency");
+			json.put("snapshot", link.isSnapshot());
+			array.add(json);
+		}
+		return array;
+	}
+
+	/**
+	 * Node with maven coordinates, release state and layout position.
+	 */
+	public static JSONObject nodeObject(final GraphFamilyCache.Node node,
+			final GraphLayout layout) {
+		final MavenModuleSet project = PluginUtilities.mavenProject(node
+				.name());
+		final JSONObject json = new JSONObject();
+		json.put("name", node.name());
+		json.put("url", project == null ? "" : project.getUrl());
+		json.put("groupId", node.moduleName().groupId);
+		json.put("artifactId", node.moduleName().artifactId);
+		json.put("version", node.version());
+		json.put("snapshot", PluginUtilities.isSnapshot(node.version()));
+		final GraphLayout.Node position = layout.node(node.name());
+		if (position != null) {
+			json.put("x", position.x());
+			json.put("y", position.y());
+			json.put("width", position.width());
+			json.put("height", GraphLayout.NODE_HEIGHT);
+		}
+		return json;
+	}
+
+	/**
+	 * Full graph, or delta since a snapshot when it is known.
+	 */
+	public static JSONObject render(final GraphFamilyCache.Family family,
+			final GraphFamilyCache.Family past) {
+
+		final JSONArray nodeArray = new JSONArray();
+		final JSONArray edgeArray = new JSONArray();
+		final JSONArray removedArray = new JSONArray();
+
+		for (final GraphFamilyCache.Node node : family.nodeMap().values()) {
+			final JSONObject nodeJson = nodeObject(node, family.layout());
+			final JSONArray edgeJson = edgeArray(node);
+			if (past != null) {
+				final GraphFamilyCache.Node pastNode = past.node(node.name());
+				if (pastNode != null
+						&& nodeObject(pastNode, past.layout()).equals(nodeJson)
+						&& edgeArray(pastNode).equals(edgeJson)) {
+					continue;
+				}
+			}
+			nodeArray.add(nodeJson);
+			edgeArray.addAll(edgeJson);
+		}
+
+		if (past != null) {
+			for (final Map.Entry<String, GraphFamilyCache.Node> entry : past
+					.nodeMap().entrySet()) {
+				if (family.node(entry.getKey()) == null) {
+					removedArray.add(entry.getKey());
+				}
+			}
+		}
+
+		final JSONObject json = new JSONObject();
+		json.put("family", family.familyID());
+		json.put("version", family.version());
+		json.put("full", past == null);
+		if (past != null) {
+			json.put("since", past.version());
+		}
+		json.put("width", family.layout().width());
+		json.put("height", family.layout().height());
+		json.put("nodes", nodeArray);
+		json.put("edges", edgeArray);
+		json.put("removed", removedArray);
+
+		return json;
+
+	}
+
+	private final ProjectIdentity identity;
+
+	public GraphFamilyAction( //
+			final ProjectIdentity identity //
+	) {
+		super(null, null, FAMILY_GRAPH_URL);
+		this.identity = identity;
+	}
+
+	/**
+	 * Family graph as JSON.
+	 */
+	@Jelly
+	public void doJson(final StaplerRequest request,
+			final StaplerResponse response) throws IOException {
+
+		final GraphFamilyCache.Family family = GraphFamilyCache
+				.family(identity);
+
+		GraphFamilyCache.Family past = null;
+
+		final String since = request.getParameter("since");
+		if (since != null) {
+			try {
+				past = GraphFamilyCache.family(identity.getFamilyID(),
+						Long.parseLong(since));
+			} catch (final NumberFormatException e) {
+				past = null;
+			}
+		}
+
+		final JSONObject json = render(family, past);
+
+		response.setContentType("application/json;charset=UTF-8");
+		response.getWriter().append(json.toString()).close();
+
+	}
+
+	@Jelly
+	public ProjectIdentity getIdentity() {
+		return identity;
+	}
+
+}
@@ -0,0 +1,543 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import static com.barchart.jenkins.cascade.PluginUtilities.*;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.maven.ModuleName;
+import hudson.maven.MavenModuleSet;
+import hudson.model.BuildListener;
+import hudson.model.TaskListener;
+import hudson.model.AbstractBuild;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SCMListener;
+import hudson.scm.ChangeLogSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+
+/**
+ * Family level member dependency graph cache, shared by graph providers.
+ * <p>
+ * Member models are parsed once per family snapshot; snapshot is dropped on
+ * family build completion, member change log or project configuration
+ * change.
+ *
+ * @author Andrei Pozolotin
+ */
+public class GraphFamilyCache {
+
+	/**
+	 * Immutable family graph snapshot.
+	 */
+	public static class Family {
+
+		private final Map<String, List<String>> childMap;
+
+		private final String familyID;
+
+		/**
+		 * Node positions, computed on first use.
+		 */
+		private GraphLayout layout;
+
+		private final Map<ModuleName, String> moduleMap;
+
+		private final Map<String, Node> nodeMap;
+
+		private final long version;
+
+		Family(final String familyID, final long version,
+				final Map<String, Node> nodeMap,
+				final Map<ModuleName, String> moduleMap) {
+			this.familyID = familyID;
+			this.version = version;
+			this.nodeMap = Collections.unmodifiableMap(nodeMap);
+			this.moduleMap = Collections.unmodifiableMap(moduleMap);
+			this.childMap = new HashMap<String, List<String>>();
+			for (final Node node : nodeMap.values()) {
+				if (node.parentName() == null) {
+					continue;
+				}
+				final String parentName = moduleMap.get(node.parentName());
+				/** Parent is not part of cascade. */
+				if (parentName == null) {
+					continue;
+				}
+				List<String> childList = childMap.get(parentName);
+				if (childList == null) {
+					childList = new ArrayList<String>();
+					childMap.put(parentName, childList);
+				}
+				childList.add(node.name());
+			}
+		}
+
+		/**
+		 * Member project names with maven parent of a member project.
+		 */
+		public List<String> childList(final String projectName) {
+			final List<String> childList = childMap.get(projectName);
+			if (childList == null) {
+				return Collections.emptyList();
+			}
+			return Collections.unmodifiableList(childList);
+		}
+
+		public String familyID() {
+			return familyID;
+		}
+
+		/**
+		 * Node positions of this snapshot.
+		 */
+		public synchronized GraphLayout layout() {
+			if (layout == null) {
+				layout = GraphLayout.from(this);
+			}
+			return layout;
+		}
+
+		/**
+		 * Member project name by module name, or null.
+		 */
+		public String memberName(final ModuleName moduleName) {
+			return moduleMap.get(moduleName);
+		}
+
+		/**
+		 * Member node by project name, or null.
+		 */
+		public Node node(final String projectName) {
+			return nodeMap.get(projectName);
+		}
+
+		/**
+		 * Member nodes by project name, in family order.
+		 */
+		public Map<String, Node> nodeMap() {
+			return nodeMap;
+		}
+
+		/**
+		 * Cache version of this snapshot.
+		 */
+		public long version() {
+			return version;
+		}
+
+	}
+
+	/**
+	 * Dependency link between two member projects.
+	 */
+	public static class Link {
+
+		private final boolean isParent;
+
+		private final boolean isSnapshot;
+
+		private final String source;
+
+		private final String target;
+
+		Link(final String source, final String target, final boolean isParent,
+				final boolean isSnapshot) {
+			this.source = source;
+			this.target = target;
+			this.isParent = isParent;
+			this.isSnapshot = isSnapshot;
+		}
+
+		/**
+		 * Graph edge color convention.
+		 */
+		public String color() {
+			if (isParent) {
+				return isSnapshot ? "red" : "chocolate";
+			} else {
+				return isSnapshot ? "blue" : "forestgreen";
+			}
+		}
+
+		/**
+		 * Link from maven parent, otherwise from maven dependency.
+		 */
+		public boolean isParent() {
+			return isParent;
+		}
+
+		/**
+		 * Link to a snapshot version.
+		 */
+		public boolean isSnapshot() {
+			return isSnapshot;
+		}
+
+		/**
+		 * Upstream project name.
+		 */
+		public String source() {
+			return source;
+		}
+
+		/**
+		 * Downstream project name.
+		 */
+		public String target() {
+			return target;
+		}
+
+	}
+
+	/**
+	 * Member project with its upstream links.
+	 */
+	public static class Node {
+
+		private final List<Link> linkList;
+
+		private final ModuleName moduleName;
+
+		private final String name;
+
+		private final ModuleName parentName;
+
+		private final String version;
+
+		Node(final String name, final ModuleName moduleName,
+				final String version, final ModuleName parentName,
+				final List<Link> linkList) {
+			this.name = name;
+			this.moduleName = moduleName;
+			this.version = version;
+			this.parentName = parentName;
+			this.linkList = Collections.unmodifiableList(linkList);
+		}
+
+		/**
+		 * Links from parent and dependency member projects.
+		 */
+		public List<Link> linkList() {
+			return linkList;
+		}
+
+		public ModuleName moduleName() {
+			return moduleName;
+		}
+
+		/**
+		 * Project name.
+		 */
+		public String name() {
+			return name;
+		}
+
+		/**
+		 * Maven parent module name, or null.
+		 */
+		public ModuleName parentName() {
+			return parentName;
+		}
+
+		/**
+		 * Maven project version.
+		 */
+		public String version() {
+			return version;
+		}
+
+	}
+
+	/**
+	 * Invalidate family graph on family build completion.
+	 */
+	@Extension
+	@SuppressWarnings("rawtypes")
+	public static class RunTracker extends RunListener<AbstractBuild> {
+
+		public RunTracker() {
+			super(AbstractBuild.class);
+		}
+
+		@Override
+		public void onCompleted(final AbstractBuild build,
+				final TaskListener listener) {
+			invalidate(build);
+		}
+
+	}
+
+	/**
+	 * Invalidate family graph on workspace change, see
+	 * {@link PluginActivator}.
+	 */
+	public static class ScmTracker extends SCMListener {
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public void onChangeLogParsed(final AbstractBuild build,
+				final BuildListener listener, final ChangeLogSet changelog) {
+			if (changelog.isEmptySet()) {
+				return;
+			}
+			invalidate(build);
+		}
+
+	}
+
+	/**
+	 * Family snapshots by family id.
+	 */
+	private static final Map<String, Family> familyMap = new ConcurrentHashMap<String, Family>();
+
+	/**
+	 * Number of recent snapshots kept per family for delta requests.
+	 */
+	public static final int HISTORY_LIMIT = Integer.getInteger(
+			GraphFamilyCache.class.getName() + ".historyLimit", 10);
+
+	/**
+	 * Recent family snapshots by family id, oldest first.
+	 */
+	private static final Map<String, LinkedList<Family>> historyMap = new HashMap<String, LinkedList<Family>>();
+
+	/**
+	 * Time to wait for shared workspace read lock, millis.
+	 */
+	public static final long READ_TIMEOUT = Long.getLong(
+			GraphFamilyCache.class.getName() + ".readTimeout", 3 * 1000);
+
+	private final static Logger log = Logger.getLogger(GraphFamilyCache.class
+			.getName());
+
+	/**
+	 * Global cache version, changes on every invalidation.
+	 */
+	private static final AtomicLong VERSION = new AtomicLong();
+
+	/**
+	 * Build family graph snapshot from member project models.
+	 */
+	public static Family build(final String familyID, final long version) {
+
+		final List<MavenModuleSet> memberList = ProjectIdentity
+				.memberProjectList(familyID);
+
+		final Map<String, Model> modelMap = new LinkedHashMap<String, Model>();
+
+		final Map<ModuleName, String> moduleMap = new HashMap<ModuleName, String>();
+
+		for (final MavenModuleSet memberProject : memberList) {
+			try {
+				final Model model = mavenModel(memberProject);
+				modelMap.put(memberProject.getName(), model);
+				moduleMap.put(moduleName(model), memberProject.getName());
+			} catch (final Exception e) {
+				log.log(Level.WARNING, "Member model failure: "
+						+ memberProject.getName(), e);
+			}
+		}
+
+		final Map<String, Node> nodeMap = new LinkedHashMap<String, Node>();
+
+		for (final Map.Entry<String, Model> entry : modelMap.entrySet()) {
+
+			final String memberName = entry.getKey();
+			final Model model = entry.getValue();
+
+			final List<Link> linkList = new ArrayList<Link>();
+
+			final Parent parent = model.getParent();
+
+			ModuleName parentName = null;
+
+			if (parent != null) {
+				parentName = moduleName(parent);
+				final String sourceName = moduleMap.get(parentName);
+				/** Parent is not part of cascade. */
+				if (sourceName != null) {
+					linkList.add(new Link(sourceName, memberName, true,
+							isSnapshot(parent)));
+				}
+			}
+
+			for (final Dependency dependency : mavenDependencies(model,
+					MATCH_ANY)) {
+				final String sourceName = moduleMap
+						.get(moduleName(dependency));
+				/** Dependency is not part of cascade. */
+				if (sourceName == null) {
+					continue;
+				}
+				linkList.add(new Link(sourceName, memberName, false,
+						isSnapshot(dependency)));
+			}
+
+			nodeMap.put(memberName, new Node(memberName, moduleName(model),
+					model.getVersion(), parentName, linkList));
+
+		}
+
+		return new Family(familyID, version, nodeMap, moduleMap);
+
+	}
+
+	/**
+	 * Cached family graph snapshot, build when missing.
+	 */
+	public static Family family(final ProjectIdentity identity) {
+
+		final String familyID = identity.getFamilyID();
+
+		final Family cached = familyMap.get(familyID);
+
+		if (cached != null) {
+			PluginMetrics.count("cache.family.hit");
+			return cached;
+		}
+
+		PluginMetrics.count("cache.family.miss");
+
+		final long version = VERSION.get();
+
+		/** Do not parse member models during workspace checkout. */
+		WorkspaceLock.Hold hold = null;
+		try {
+			hold = WorkspaceLock.ensure(familyID).read(READ_TIMEOUT);
+		} catch (final AbortException e) {
+			final Family recent = recent(familyID);
+			if (recent != null) {
+				return recent;
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		final Family family;
+		try {
+			family = build(familyID, version);
+		} finally {
+			if (hold != null) {
+				hold.release();
+			}
+		}
+
+		/** Unlocked snapshot could be inconsistent. */
+		if (hold == null) {
+			return family;
+		}
+
+		/** Do not cache snapshot which was invalidated while building. */
+		if (version == VERSION.get()) {
+			familyMap.put(familyID, family);
+			history(family);
+		}
+
+		return family;
+
+	}
+
+	/**
+	 * Recent family snapshot with a version, or null.
+	 */
+	public static Family family(final String familyID, final long version) {
+		synchronized (historyMap) {
+			final List<Family> historyList = historyMap.get(familyID);
+			if (historyList == null) {
+				return null;
+			}
+			for (final Family family : historyList) {
+				if (family.version() == version) {
+					return family;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Remember recent family snapshot.
+	 */
+	static void history(final Family family) {
+		synchronized (historyMap) {
+			LinkedList<Family> historyList = historyMap.get(family.familyID());
+			if (historyList == null) {
+				historyList = new LinkedList<Family>();
+				historyMap.put(family.familyID(), historyList);
+			}
+			historyList.add(family);
+			while (historyList.size() > HISTORY_LIMIT) {
+				historyList.removeFirst();
+			}
+		}
+	}
+
+	/**
+	 * Most recent family snapshot, or null.
+	 */
+	static Family recent(final String familyID) {
+		synchronized (historyMap) {
+			final LinkedList<Family> historyList = historyMap.get(familyID);
+			if (historyList == null || historyList.isEmpty()) {
+				return null;
+			}
+			return historyList.getLast();
+		}
+	}
+
+	/**
+	 * Drop cached family graph of a build project.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void invalidate(final AbstractBuild build) {
+		final ProjectIdentity identity = ProjectIdentity.identity(build
+				.getProject().getRootProject());
+		if (identity == null) {
+			return;
+		}
+		invalidate(identity.getFamilyID());
+	}
+
+	/**
+	 * Drop cached family graph.
+	 */
+	public static void invalidate(final String familyID) {
+		VERSION.incrementAndGet();
+		familyMap.remove(familyID);
+	}
+
+	/**
+	 * Cached member node of a project, or null.
+	 */
+	public static Node node(final MavenModuleSet project) {
+		final ProjectIdentity identity = ProjectIdentity.identity(project);
+		if (identity == null) {
+			return null;
+		}
+		return family(identity).node(project.getName());
+	}
+
+	private GraphFamilyCache() {
+	}
+
+}
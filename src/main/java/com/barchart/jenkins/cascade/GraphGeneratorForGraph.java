@@ -16,11 +16,8 @@ import hudson.plugins.depgraph_view.model.graph.DependencyGraph;
 import hudson.plugins.depgraph_view.model.graph.Edge;
 import hudson.plugins.depgraph_view.model.graph.ProjectNode;
 
-import java.io.IOException;
 import java.util.List;
 
-import org.apache.maven.model.Model;
-
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ListMultimap;
@@ -128,12 +125,11 @@ public class GraphGeneratorForGraph extends AbstractDotStringGenerator {
 		final AbstractProject<?, ?> project = node.getProject();
 		if (project instanceof MavenModuleSet) {
 			final MavenModuleSet mavenProject = (MavenModuleSet) project;
-			try {
-				final Model model = PluginUtilities.mavenModel(mavenProject);
-				final String version = model.getVersion();
+			final GraphFamilyCache.Node member = GraphFamilyCache
+					.node(mavenProject);
+			if (member != null) {
+				final String version = member.version();
 				label = escapeString(node.getName() + "\\n" + version);
-			} catch (final IOException e) {
-				e.printStackTrace();
 			}
 		}
 
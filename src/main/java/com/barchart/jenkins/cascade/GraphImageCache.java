@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.Util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Rendered graph image cache, keyed by digest of graph source and image
+ * type.
+ * <p>
+ * Bounded in memory and on disk; concurrent requests for the same image
+ * share one render.
+ *
+ * @author Andrei Pozolotin
+ */
+public class GraphImageCache {
+
+	/**
+	 * Maximum number of images on disk.
+	 */
+	public static final int DISK_LIMIT = Integer.getInteger(
+			GraphImageCache.class.getName() + ".diskLimit", 1000);
+
+	private final static Logger log = Logger.getLogger(GraphImageCache.class
+			.getName());
+
+	/**
+	 * Maximum number of images in memory.
+	 */
+	public static final int MEMORY_LIMIT = Integer.getInteger(
+			GraphImageCache.class.getName() + ".memoryLimit", 100);
+
+	/**
+	 * Renders in progress by key.
+	 */
+	private static final Map<String, FutureTask<byte[]>> renderMap = new HashMap<String, FutureTask<byte[]>>();
+
+	/**
+	 * Least recently used images by key.
+	 */
+	private static final Map<String, byte[]> memoryMap = new LinkedHashMap<String, byte[]>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				final Map.Entry<String, byte[]> entry) {
+			return size() > MEMORY_LIMIT;
+		}
+
+	};
+
+	/**
+	 * Image cache folder.
+	 */
+	public static File diskFolder() {
+		return new File(Jenkins.getInstance().getRootDir(), "cache/"
+				+ PluginConstants.PLUGIN_ID + "-graph");
+	}
+
+	/**
+	 * Read image from disk, or null.
+	 */
+	public static byte[] diskRead(final String key) {
+		final File file = new File(diskFolder(), key);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			/** Keep recently used images on disk. */
+			file.setLastModified(System.currentTimeMillis());
+			return FileUtils.readFileToByteArray(file);
+		} catch (final Exception e) {
+			log.log(Level.WARNING, "Image read failure: " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Store image on disk, drop oldest images above the limit.
+	 */
+	public static void diskWrite(final String key, final byte[] image) {
+		final File folder = diskFolder();
+		try {
+
+			folder.mkdirs();
+
+			final File temp = new File(folder, key + ".tmp");
+			final FileOutputStream output = new FileOutputStream(temp);
+			try {
+				output.write(image);
+			} finally {
+				output.close();
+			}
+			final File file = new File(folder, key);
+			if (!temp.renameTo(file)) {
+				temp.delete();
+			}
+
+			final File[] fileList = folder.listFiles();
+			if (fileList == null || fileList.length <= DISK_LIMIT) {
+				return;
+			}
+			Arrays.sort(fileList, new Comparator<File>() {
+				public int compare(final File one, final File two) {
+					final long delta = one.lastModified() - two.lastModified();
+					return delta < 0 ? -1 : delta > 0 ? 1 : 0;
+				}
+			});
+			for (int index = 0; index < fileList.length - DISK_LIMIT; index++) {
+				fileList[index].delete();
+			}
+
+		} catch (final Exception e) {
+			log.log(Level.WARNING, "Image write failure: " + folder, e);
+		}
+	}
+
+	/**
+	 * Cached image, render when missing.
+	 */
+	public static byte[] image(final String key,
+			final Callable<byte[]> renderer) throws IOException,
+			InterruptedException {
+
+		synchronized (memoryMap) {
+			final byte[] image = memoryMap.get(key);
+			if (image != null) {
+				PluginMetrics.count("cache.image.hit");
+				return image;
+			}
+		}
+
+		final FutureTask<byte[]> task = new FutureTask<byte[]>(
+				new Callable<byte[]>() {
+					public byte[] call() throws Exception {
+						byte[] image = diskRead(key);
+						if (image == null) {
+							PluginMetrics.count("cache.image.miss");
+							final long timeStart = System.currentTimeMillis();
+							image = renderer.call();
+							PluginMetrics.since("graph.render", timeStart);
+							diskWrite(key, image);
+						} else {
+							PluginMetrics.count("cache.image.hit");
+							PluginMetrics.count("cache.image.disk");
+						}
+						synchronized (memoryMap) {
+							memoryMap.put(key, image);
+						}
+						return image;
+					}
+				});
+
+		FutureTask<byte[]> render;
+
+		synchronized (renderMap) {
+			render = renderMap.get(key);
+			if (render == null) {
+				render = task;
+				renderMap.put(key, render);
+			}
+		}
+
+		try {
+			if (render == task) {
+				task.run();
+			}
+			return render.get();
+		} catch (final ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			if (render == task) {
+				synchronized (renderMap) {
+					renderMap.remove(key);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Cache key, also used as HTTP entity tag.
+	 */
+	public static String key(final String graphSource, final String imageType) {
+		return Util.getDigestOf(imageType + "\n" + graphSource) + "."
+				+ imageType.toLowerCase();
+	}
+
+	private GraphImageCache() {
+	}
+
+}
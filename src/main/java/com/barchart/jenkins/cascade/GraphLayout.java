@@ -0,0 +1,572 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.maven.MavenModuleSet;
+import hudson.model.AbstractProject;
+import hudson.plugins.depgraph_view.model.graph.DependencyGraph;
+import hudson.plugins.depgraph_view.model.graph.Edge;
+import hudson.plugins.depgraph_view.model.graph.ProjectNode;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * In-JVM layered graph layout with SVG and PNG output, replaces external
+ * graphviz dot for cascade family graphs.
+ * <p>
+ * Layers by longest path from sources, order in layer by barycenter sweeps,
+ * edges drawn as straight lines top to bottom.
+ *
+ * @author Andrei Pozolotin
+ */
+public class GraphLayout {
+
+	/**
+	 * Layout edge.
+	 */
+	public static class Link {
+
+		final String color;
+		final Node source;
+		final Node target;
+
+		Link(final Node source, final Node target, final String color) {
+			this.source = source;
+			this.target = target;
+			this.color = color;
+		}
+
+	}
+
+	/**
+	 * Layout node.
+	 */
+	public static class Node {
+
+		final List<Node> sourceList = new ArrayList<Node>();
+		final List<Node> targetList = new ArrayList<Node>();
+
+		final String name;
+		final String text;
+		final String url;
+
+		double order;
+		int layer;
+		int width;
+		int x;
+		int y;
+
+		Node(final String name, final String text, final String url) {
+			this.name = name;
+			this.text = text;
+			this.url = url;
+		}
+
+		/**
+		 * Node box width.
+		 */
+		public int width() {
+			return width;
+		}
+
+		/**
+		 * Node box left edge.
+		 */
+		public int x() {
+			return x;
+		}
+
+		/**
+		 * Node box top edge.
+		 */
+		public int y() {
+			return y;
+		}
+
+	}
+
+	public static final int CHAR_WIDTH = 7;
+	public static final int FONT_SIZE = 10;
+	public static final int LAYER_GAP = 50;
+	public static final int NODE_GAP = 20;
+	public static final int NODE_HEIGHT = 36;
+	public static final int ORDER_SWEEPS = 4;
+	public static final int PADDING = 10;
+
+	/**
+	 * Color names used by {@link GraphFamilyCache.Link#color()}.
+	 */
+	private static final Map<String, Color> COLOR_MAP = new HashMap<String, Color>();
+	static {
+		COLOR_MAP.put("red", new Color(0xFF0000));
+		COLOR_MAP.put("chocolate", new Color(0xD2691E));
+		COLOR_MAP.put("blue", new Color(0x0000FF));
+		COLOR_MAP.put("forestgreen", new Color(0x228B22));
+	}
+
+	static String escape(final String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;")
+				.replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	/**
+	 * Build layout from depgraph model.
+	 */
+	public static GraphLayout from(final DependencyGraph graph) {
+
+		final GraphLayout layout = new GraphLayout();
+
+		for (final ProjectNode node : graph.getNodes()) {
+
+			final AbstractProject<?, ?> project = node.getProject();
+
+			String text = node.getName();
+			if (project instanceof MavenModuleSet) {
+				final GraphFamilyCache.Node member = GraphFamilyCache
+						.node((MavenModuleSet) project);
+				if (member != null) {
+					text = text + "\n" + member.version();
+				}
+			}
+
+			layout.node(node.getName(), text, project.getAbsoluteUrl());
+
+		}
+
+		for (final Edge edge : graph.getEdges()) {
+			layout.link(edge.source.getName(), edge.target.getName(),
+					edge.getColor());
+		}
+
+		return layout;
+
+	}
+
+	/**
+	 * Build layout from family graph snapshot.
+	 */
+	public static GraphLayout from(final GraphFamilyCache.Family family) {
+
+		final GraphLayout layout = new GraphLayout();
+
+		for (final GraphFamilyCache.Node node : family.nodeMap().values()) {
+			final MavenModuleSet project = PluginUtilities.mavenProject(node
+					.name());
+			layout.node(node.name(), node.name() + "\n" + node.version(),
+					project == null ? "" : project.getAbsoluteUrl());
+		}
+
+		for (final GraphFamilyCache.Node node : family.nodeMap().values()) {
+			for (final GraphFamilyCache.Link link : node.linkList()) {
+				layout.link(link.source(), link.target(), link.color());
+			}
+		}
+
+		return layout.layout();
+
+	}
+
+	/**
+	 * Family layout option for a graph project.
+	 */
+	public static boolean isEnabled(final AbstractProject<?, ?> project) {
+
+		final ProjectIdentity identity = ProjectIdentity.identity(project);
+		if (identity == null) {
+			return false;
+		}
+
+		final MavenModuleSet layoutProject = identity.layoutProject();
+		if (layoutProject == null) {
+			return false;
+		}
+
+		final LayoutBuildWrapper wrapper = LayoutBuildWrapper
+				.wrapper(layoutProject);
+		if (wrapper == null) {
+			return false;
+		}
+
+		return wrapper.getLayoutOptions().getUseGraphLayout();
+
+	}
+
+	private int height;
+
+	private final List<List<Node>> layerList = new ArrayList<List<Node>>();
+
+	private final List<Link> linkList = new ArrayList<Link>();
+
+	private final Map<String, Node> nodeMap = new LinkedHashMap<String, Node>();
+
+	private int width;
+
+	/**
+	 * Layout height.
+	 */
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Compute node coordinates.
+	 */
+	public GraphLayout layout() {
+
+		layerAssign();
+		layerOrder();
+		position();
+
+		return this;
+
+	}
+
+	/**
+	 * Longest path layering, nodes on cycles go below the rest.
+	 */
+	void layerAssign() {
+
+		final Map<Node, Integer> degreeMap = new HashMap<Node, Integer>();
+		final List<Node> readyList = new ArrayList<Node>();
+
+		for (final Node node : nodeMap.values()) {
+			node.layer = 0;
+			degreeMap.put(node, node.sourceList.size());
+			if (node.sourceList.isEmpty()) {
+				readyList.add(node);
+			}
+		}
+
+		int layerMax = 0;
+		int count = 0;
+
+		while (count < readyList.size()) {
+			final Node node = readyList.get(count++);
+			layerMax = Math.max(layerMax, node.layer);
+			for (final Node target : node.targetList) {
+				target.layer = Math.max(target.layer, node.layer + 1);
+				final int degree = degreeMap.get(target) - 1;
+				degreeMap.put(target, degree);
+				if (degree == 0) {
+					readyList.add(target);
+				}
+			}
+		}
+
+		for (final Node node : nodeMap.values()) {
+			if (degreeMap.get(node) > 0) {
+				node.layer = Math.max(node.layer, layerMax + 1);
+			}
+		}
+
+		layerList.clear();
+		for (final Node node : nodeMap.values()) {
+			while (layerList.size() <= node.layer) {
+				layerList.add(new ArrayList<Node>());
+			}
+			final List<Node> layer = layerList.get(node.layer);
+			node.order = layer.size();
+			layer.add(node);
+		}
+
+	}
+
+	/**
+	 * Reduce crossings with barycenter sweeps down and up.
+	 */
+	void layerOrder() {
+
+		final Comparator<Node> comparator = new Comparator<Node>() {
+			public int compare(final Node one, final Node two) {
+				return Double.compare(one.order, two.order);
+			}
+		};
+
+		for (int sweep = 0; sweep < ORDER_SWEEPS; sweep++) {
+
+			final boolean isDown = sweep % 2 == 0;
+
+			for (int index = 1; index < layerList.size(); index++) {
+
+				final List<Node> layer = layerList.get(isDown ? index
+						: layerList.size() - 1 - index);
+
+				for (final Node node : layer) {
+					final List<Node> peerList = isDown ? node.sourceList
+							: node.targetList;
+					if (peerList.isEmpty()) {
+						continue;
+					}
+					double sum = 0;
+					for (final Node peer : peerList) {
+						sum += peer.order;
+					}
+					node.order = sum / peerList.size();
+				}
+
+				Collections.sort(layer, comparator);
+
+				for (int order = 0; order < layer.size(); order++) {
+					layer.get(order).order = order;
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Add edge between named nodes, ignore unknown nodes and self loops.
+	 */
+	public GraphLayout link(final String sourceName, final String targetName,
+			final String color) {
+		final Node source = nodeMap.get(sourceName);
+		final Node target = nodeMap.get(targetName);
+		if (source == null || target == null || source == target) {
+			return this;
+		}
+		source.targetList.add(target);
+		target.sourceList.add(source);
+		linkList.add(new Link(source, target, color));
+		return this;
+	}
+
+	/**
+	 * Layout node by name, or null.
+	 */
+	public Node node(final String name) {
+		return nodeMap.get(name);
+	}
+
+	/**
+	 * Add node; text lines are separated with new line.
+	 */
+	public GraphLayout node(final String name, final String text,
+			final String url) {
+		final Node node = new Node(name, text, url);
+		int length = 0;
+		for (final String line : text.split("\n")) {
+			length = Math.max(length, line.length());
+		}
+		node.width = length * CHAR_WIDTH + 2 * PADDING;
+		nodeMap.put(name, node);
+		return this;
+	}
+
+	/**
+	 * Center layers horizontally, stack layers vertically.
+	 */
+	void position() {
+
+		width = 0;
+		for (final List<Node> layer : layerList) {
+			int layerWidth = 0;
+			for (final Node node : layer) {
+				layerWidth += node.width + NODE_GAP;
+			}
+			width = Math.max(width, layerWidth);
+		}
+		width += NODE_GAP;
+
+		int y = LAYER_GAP / 2;
+		for (final List<Node> layer : layerList) {
+			int layerWidth = 0;
+			for (final Node node : layer) {
+				layerWidth += node.width + NODE_GAP;
+			}
+			int x = (width - layerWidth) / 2 + NODE_GAP;
+			for (final Node node : layer) {
+				node.x = x;
+				node.y = y;
+				x += node.width + NODE_GAP;
+			}
+			y += NODE_HEIGHT + LAYER_GAP;
+		}
+		height = y - LAYER_GAP / 2;
+
+	}
+
+	/**
+	 * Render layout as PNG image.
+	 */
+	public byte[] renderPNG() throws IOException {
+
+		final BufferedImage image = new BufferedImage(Math.max(width, 1),
+				Math.max(height, 1), BufferedImage.TYPE_INT_ARGB);
+
+		final Graphics2D graphics = image.createGraphics();
+
+		try {
+
+			graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN,
+					FONT_SIZE + 2));
+
+			graphics.setStroke(new BasicStroke(1.2f));
+			for (final Link link : linkList) {
+				final Color color = COLOR_MAP.get(link.color);
+				graphics.setColor(color == null ? Color.BLACK : color);
+				final int x1 = link.source.x + link.source.width / 2;
+				final int y1 = link.source.y + NODE_HEIGHT;
+				final int x2 = link.target.x + link.target.width / 2;
+				final int y2 = link.target.y;
+				graphics.drawLine(x1, y1, x2, y2);
+				final double angle = Math.atan2(y2 - y1, x2 - x1);
+				final int[] xs = { x2,
+						(int) (x2 - 8 * Math.cos(angle - 0.4)),
+						(int) (x2 - 8 * Math.cos(angle + 0.4)) };
+				final int[] ys = { y2,
+						(int) (y2 - 8 * Math.sin(angle - 0.4)),
+						(int) (y2 - 8 * Math.sin(angle + 0.4)) };
+				graphics.fillPolygon(xs, ys, 3);
+			}
+
+			for (final Node node : nodeMap.values()) {
+				graphics.setColor(Color.WHITE);
+				graphics.fillRoundRect(node.x, node.y, node.width,
+						NODE_HEIGHT, 10, 10);
+				graphics.setColor(Color.BLACK);
+				graphics.drawRoundRect(node.x, node.y, node.width,
+						NODE_HEIGHT, 10, 10);
+				final String[] lineArray = node.text.split("\n");
+				for (int index = 0; index < lineArray.length; index++) {
+					final String line = lineArray[index];
+					final int lineWidth = graphics.getFontMetrics()
+							.stringWidth(line);
+					graphics.drawString(line, node.x + (node.width - lineWidth)
+							/ 2, node.y + textBase(index, lineArray.length));
+				}
+			}
+
+		} finally {
+			graphics.dispose();
+		}
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", output);
+		return output.toByteArray();
+
+	}
+
+	/**
+	 * Render layout as SVG document with project links.
+	 */
+	public String renderSVG() {
+
+		final StringBuilder text = new StringBuilder();
+
+		text.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		text.append("<svg xmlns=\"http://www.w3.org/2000/svg\"");
+		text.append(" xmlns:xlink=\"http://www.w3.org/1999/xlink\"");
+		text.append(" width=\"" + width + "\" height=\"" + height + "\"");
+		text.append(" font-family=\"sans-serif\" font-size=\"" + FONT_SIZE
+				+ "\">\n");
+
+		text.append("<defs>\n");
+		for (final String color : COLOR_MAP.keySet()) {
+			text.append("<marker id=\"arrow-" + color + "\"");
+			text.append(" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\"");
+			text.append(" markerWidth=\"8\" markerHeight=\"8\" orient=\"auto\">");
+			text.append("<path d=\"M0,0 L10,5 L0,10 z\" fill=\"" + color
+					+ "\"/></marker>\n");
+		}
+		text.append("</defs>\n");
+
+		for (final Link link : linkList) {
+			final String color = COLOR_MAP.containsKey(link.color) ? link.color
+					: "black";
+			text.append("<line");
+			text.append(" x1=\"" + (link.source.x + link.source.width / 2)
+					+ "\"");
+			text.append(" y1=\"" + (link.source.y + NODE_HEIGHT) + "\"");
+			text.append(" x2=\"" + (link.target.x + link.target.width / 2)
+					+ "\"");
+			text.append(" y2=\"" + link.target.y + "\"");
+			text.append(" stroke=\"" + color + "\"");
+			if (COLOR_MAP.containsKey(color)) {
+				text.append(" marker-end=\"url(#arrow-" + color + ")\"");
+			}
+			text.append("/>\n");
+		}
+
+		for (final Node node : nodeMap.values()) {
+			text.append("<a xlink:href=\"" + escape(node.url) + "\">");
+			text.append("<rect x=\"" + node.x + "\" y=\"" + node.y + "\"");
+			text.append(" width=\"" + node.width + "\" height=\""
+					+ NODE_HEIGHT + "\"");
+			text.append(" rx=\"5\" fill=\"white\" stroke=\"black\"/>");
+			final String[] lineArray = node.text.split("\n");
+			for (int index = 0; index < lineArray.length; index++) {
+				text.append("<text x=\"" + (node.x + node.width / 2) + "\"");
+				text.append(" y=\"" + (node.y + textBase(index, lineArray.length))
+						+ "\"");
+				text.append(" text-anchor=\"middle\">");
+				text.append(escape(lineArray[index]));
+				text.append("</text>");
+			}
+			text.append("</a>\n");
+		}
+
+		text.append("</svg>\n");
+
+		return text.toString();
+
+	}
+
+	/**
+	 * Stable description of layout input, used as cache key source.
+	 */
+	public String source() {
+		final StringBuilder text = new StringBuilder();
+		for (final Node node : nodeMap.values()) {
+			text.append(node.name).append(" ").append(node.text)
+					.append(" ").append(node.url).append("\n");
+		}
+		for (final Link link : linkList) {
+			text.append(link.source.name).append(" -> ")
+					.append(link.target.name).append(" ").append(link.color)
+					.append("\n");
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Vertical text base line offset inside of a node.
+	 */
+	int textBase(final int index, final int count) {
+		final int lineHeight = FONT_SIZE + 4;
+		final int top = (NODE_HEIGHT - count * lineHeight) / 2;
+		return top + (index + 1) * lineHeight - 3;
+	}
+
+	/**
+	 * Layout width.
+	 */
+	public int width() {
+		return width;
+	}
+
+}
@@ -21,12 +21,14 @@ import hudson.plugins.depgraph_view.model.graph.SubProjectProvider;
 import hudson.plugins.depgraph_view.model.graph.SubprojectCalculator;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
@@ -104,6 +106,27 @@ public class GraphProjectAction extends AbstractDependencyGraphAction implements
 			final ListMultimap<ProjectNode, ProjectNode> projects2Subprojects = subprojCalculator
 					.generate(graph);
 
+			if (isGraphLayout(imageType)) {
+
+				final GraphLayout layout = GraphLayout.from(graph).layout();
+
+				final boolean isSVG = imageType == SupportedImageType.SVG;
+
+				doImage(req, rsp, imageType, layout.source(),
+						new Callable<byte[]>() {
+							public byte[] call() throws Exception {
+								if (isSVG) {
+									return layout.renderSVG().getBytes("UTF-8");
+								} else {
+									return layout.renderPNG();
+								}
+							}
+						});
+
+				return;
+
+			}
+
 			stringGenerator = generatorFactory.newGenerator(graph,
 					projects2Subprojects);
 
@@ -120,13 +143,48 @@ public class GraphProjectAction extends AbstractDependencyGraphAction implements
 
 		final String graphString = stringGenerator.generate();
 
-		rsp.setContentType(imageType.contentType);
 		if (imageType.requiresProcessing) {
-			runDot(rsp.getOutputStream(),
-					new ByteArrayInputStream(graphString.getBytes(Charset
-							.forName("UTF-8"))), imageType.dotType);
+			final String dotType = imageType.dotType;
+			doImage(req, rsp, imageType, graphString, new Callable<byte[]>() {
+				public byte[] call() throws Exception {
+					final ByteArrayOutputStream output = new ByteArrayOutputStream();
+					runDot(output, new ByteArrayInputStream(graphString
+							.getBytes(Charset.forName("UTF-8"))), dotType);
+					return output.toByteArray();
+				}
+			});
 		} else {
-			rsp.getWriter().append(graphString).close();
+			doImage(req, rsp, imageType, graphString, null);
+		}
+
+	}
+
+	/**
+	 * Send cached image with entity tag, or graph source when no renderer.
+	 */
+	protected void doImage(final StaplerRequest req,
+			final StaplerResponse rsp, final SupportedImageType imageType,
+			final String graphSource, final Callable<byte[]> renderer)
+			throws IOException, InterruptedException {
+
+		final String graphKey = GraphImageCache.key(graphSource,
+				imageType.name());
+
+		final String entityTag = "\"" + graphKey + "\"";
+
+		rsp.setHeader("ETag", entityTag);
+
+		if (entityTag.equals(req.getHeader("If-None-Match"))) {
+			rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		rsp.setContentType(imageType.contentType);
+		if (renderer == null) {
+			rsp.getWriter().append(graphSource).close();
+		} else {
+			final byte[] image = GraphImageCache.image(graphKey, renderer);
+			rsp.getOutputStream().write(image);
 		}
 
 	}
@@ -157,6 +215,19 @@ public class GraphProjectAction extends AbstractDependencyGraphAction implements
 		return MEMBER_GRAPH_NAME;
 	}
 
+	/**
+	 * Use built-in layout instead of graphviz for this image type.
+	 */
+	protected boolean isGraphLayout(final SupportedImageType imageType) {
+		switch (imageType) {
+		case PNG:
+		case SVG:
+			return GraphLayout.isEnabled(project);
+		default:
+			return false;
+		}
+	}
+
 	@Override
 	public String getUrlName() {
 		return PLUGIN_ID + "-" + super.getUrlName();
@@ -8,8 +8,6 @@
 package com.barchart.jenkins.cascade;
 
 import static com.barchart.jenkins.cascade.PluginUtilities.*;
-import hudson.maven.ModuleName;
-import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
 import hudson.model.AbstractProject;
 import hudson.plugins.depgraph_view.model.graph.ProjectNode;
@@ -21,12 +19,11 @@ import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
-import org.apache.maven.model.Dependency;
-
 /**
- * Provide cascade project graph dependency selector.
+ * Provide cascade project graph sub project grouping: member projects are
+ * grouped under their maven parent member project.
  * <p>
- * Not used yet.
+ * Uses parent index of cached family graph, no model parsing here.
  * 
  * @author Stefan Wolf
  * @author Andrei Pozolotin
@@ -55,34 +52,24 @@ public class GraphSubProjectProvider implements SubProjectProvider {
 				return subProjects;
 			}
 
-			if (!(project instanceof MavenModuleSet)) {
+			if (identity.role() != ProjectRole.MEMBER) {
 				return subProjects;
 			}
 
-			final MavenModuleSet mavenProject = (MavenModuleSet) project;
-
-			final List<MavenModuleSet> memberProjectList = identity
-					.memberProjectList();
-
-			final List<Dependency> dependencyList = mavenDependencies(
-					mavenProject, MATCH_ANY);
-
-			for (final Dependency dependency : dependencyList) {
+			final GraphFamilyCache.Family family = GraphFamilyCache
+					.family(identity);
 
-				final ModuleName dependencyModule = moduleName(dependency);
+			for (final String childName : family.childList(project.getName())) {
 
-				for (final MavenModuleSet memberProject : memberProjectList) {
-
-					final MavenModule memberModule = memberProject
-							.getRootModule();
-
-					// XXX
-					if (dependencyModule.equals(memberModule)) {
-						// subProjects.add(ProjectNode.node(memberProject)); //
-					}
+				final MavenModuleSet childProject = mavenProject(childName);
 
+				/** Project removed after snapshot. */
+				if (childProject == null) {
+					continue;
 				}
 
+				subProjects.add(ProjectNode.node(childProject));
+
 			}
 
 		} catch (final Exception e) {
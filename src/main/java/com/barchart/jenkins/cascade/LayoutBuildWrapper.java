@@ -196,7 +196,8 @@ public class LayoutBuildWrapper extends BuildWrapper implements PluginConstants
 		final BuildContext<MavenModuleSetBuild> context = new BuildContext<MavenModuleSetBuild>(
 				build, launcher, listener);
 
-		if (LayoutBuildCause.hasCause(build)) {
+		if (LayoutBuildCause.hasCause(build)
+				&& !LayoutValidateAction.hasAction(build)) {
 
 			context.log("Start maven validation.");
 
@@ -236,6 +237,9 @@ public class LayoutBuildWrapper extends BuildWrapper implements PluginConstants
 						final BuildListener listener //
 				) throws IOException {
 					context.log("Maven build finish.");
+					if (LayoutValidateAction.hasAction(build)) {
+						LayoutLogic.processMemberValidateRecord(context);
+					}
 					return true;
 				}
 			};
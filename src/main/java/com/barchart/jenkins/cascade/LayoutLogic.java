@@ -9,39 +9,62 @@ package com.barchart.jenkins.cascade;
 
 import static com.barchart.jenkins.cascade.MavenTokenMacro.*;
 import static com.barchart.jenkins.cascade.PluginUtilities.*;
+import hudson.BulkChange;
 import hudson.FilePath;
 import hudson.Util;
 import hudson.XmlFile;
 import hudson.maven.ModuleName;
+import hudson.maven.MavenBuild;
 import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
 import hudson.maven.MavenModuleSetBuild;
 import hudson.model.Action;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
+import hudson.model.JobProperty;
 import hudson.model.Items;
+import hudson.model.Result;
+import hudson.model.Run;
 import hudson.model.TopLevelItem;
+import hudson.model.AbstractItem;
 import hudson.model.Cause;
-import hudson.model.Computer;
 import hudson.model.Descriptor;
 import hudson.model.ListView;
+import hudson.model.StreamBuildListener;
 import hudson.plugins.git.GitSCM;
 import hudson.scm.SCM;
 import hudson.scm.SubversionSCM;
+import hudson.security.ACL;
 import hudson.tasks.BuildWrapper;
+import hudson.triggers.Trigger;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.DescribableList;
 import hudson.util.VariableResolver;
 import hudson.views.ListViewColumn;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import jenkins.model.Jenkins;
 import jenkins.scm.SCMCheckoutStrategy;
 
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
 import org.apache.maven.model.Model;
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
 import org.joda.time.DateTime;
@@ -56,6 +79,44 @@ import com.barchart.jenkins.cascade.PluginUtilities.JenkinsTask;
  */
 public class LayoutLogic implements PluginConstants {
 
+	/**
+	 * Maximum number of concurrent member project updates.
+	 */
+	public static final int MEMBER_WORKER_LIMIT = Integer.getInteger(
+			LayoutLogic.class.getName() + ".memberWorkerLimit", 4);
+
+	/**
+	 * Description marker of member projects detached from the family.
+	 */
+	public static final String ORPHAN_MARKER = "<p>ORPHAN PROJECT<p>";
+
+	/**
+	 * Identity element in project config, with optional attributes; changes
+	 * with every event.
+	 */
+	public static final String MEMBER_DIGEST_IDENTITY = "(?s)<"
+			+ ProjectIdentity.class.getName() + "[^>]*>.*?</"
+			+ ProjectIdentity.class.getName() + ">";
+
+	/**
+	 * Project fields not copied by {@link #syncConfig}: managed via
+	 * interface or owned by member.
+	 */
+	public static final Set<String> SYNC_CONFIG_EXCLUDE = new HashSet<String>(
+			Arrays.asList("properties", "rootModule", "nextBuildNumber"));
+
+	/**
+	 * Member digest format version, change when member update logic
+	 * changes.
+	 */
+	public static final String MEMBER_DIGEST_VERSION = "1";
+
+	/**
+	 * Layout module list stored by the last layout build, in layout project
+	 * folder.
+	 */
+	public static final String MODULE_FILE = "cascade-modules.xml";
+
 	/**
 	 * Generate cascade project name.
 	 */
@@ -167,6 +228,48 @@ public class LayoutLogic implements PluginConstants {
 
 	}
 
+	/**
+	 * Copy configuration from layout into live member in memory, w/o post
+	 * load hook and build history reload; member identity is preserved.
+	 * <p>
+	 * Caller is responsible to persist member project.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static void syncConfig(final MavenModuleSet layoutProject,
+			final MavenModuleSet memberProject) throws IOException {
+
+		/** Detached layout copy via XML, no post load hook. */
+		final MavenModuleSet layoutCopy = (MavenModuleSet) Items
+				.getConfigFile(layoutProject).read();
+
+		/** Triggers are restarted with new configuration. */
+		for (final Trigger trigger : memberProject.getTriggers().values()) {
+			trigger.stop();
+		}
+
+		copyFields(layoutCopy, memberProject, AbstractItem.class,
+				SYNC_CONFIG_EXCLUDE);
+
+		for (final Trigger trigger : memberProject.getTriggers().values()) {
+			trigger.start(memberProject, true);
+		}
+
+		/** Properties, except identity, via owner-aware interface. */
+		for (final JobProperty property : memberProject.getAllProperties()) {
+			if (property instanceof ProjectIdentity) {
+				continue;
+			}
+			memberProject.removeProperty(property);
+		}
+		for (final JobProperty property : layoutCopy.getAllProperties()) {
+			if (property instanceof ProjectIdentity) {
+				continue;
+			}
+			memberProject.addProperty(property);
+		}
+
+	}
+
 	/**
 	 * Create view if missing and add project to the view.
 	 */
@@ -186,6 +289,44 @@ public class LayoutLogic implements PluginConstants {
 
 	}
 
+	/**
+	 * Create view if missing and add project list to the view in one pass,
+	 * persist jenkins configuration once.
+	 */
+	public static void ensureProjectViewList(
+			final BuildContext<MavenModuleSetBuild> context,
+			final List<? extends TopLevelItem> projectList) throws IOException {
+
+		if (projectList.isEmpty()) {
+			return;
+		}
+
+		final String viewName = context.layoutOptions().getLayoutViewName();
+
+		final BulkChange change = new BulkChange(Jenkins.getInstance());
+
+		try {
+
+			final ListView view = ensureListView(viewName);
+
+			for (final TopLevelItem project : projectList) {
+				view.add(project);
+			}
+
+			ensureProjectViewColumns(view);
+
+			change.commit();
+
+			context.log("");
+			context.log("Project view: " + view.getAbsoluteUrl());
+			context.logTab("Projects added: " + projectList.size());
+
+		} finally {
+			change.abort();
+		}
+
+	}
+
 	/**
 	 * Activate additional columns for the cascade view.
 	 */
@@ -228,6 +369,49 @@ public class LayoutLogic implements PluginConstants {
 		return list;
 	}
 
+	/**
+	 * Digest of member configuration derived from layout: layout config
+	 * without layout identity, member module path, shared workspace.
+	 */
+	public static String memberDigest(
+			final BuildContext<MavenModuleSetBuild> context,
+			final MavenModuleSet layoutProject, final MavenModule memberModule)
+			throws IOException {
+
+		final XmlFile layoutConfig = Items.getConfigFile(layoutProject);
+
+		final String layoutText = layoutConfig.asString().replaceAll(
+				MEMBER_DIGEST_IDENTITY, "");
+
+		final StringBuilder text = new StringBuilder();
+
+		text.append(MEMBER_DIGEST_VERSION);
+		text.append("\n");
+		text.append(memberModule.getRelativePath());
+		text.append("\n");
+		if (context.layoutOptions().getUseSharedWorkspace()) {
+			text.append(context.build().getWorkspace().getRemote());
+		}
+		text.append("\n");
+		text.append(layoutText);
+
+		return Util.getDigestOf(text.toString());
+
+	}
+
+	/**
+	 * Digest of in-memory member project config without identity; detects
+	 * manual member config changes.
+	 */
+	public static String memberConfigDigest(final MavenModuleSet memberProject) {
+
+		final String memberText = Items.XSTREAM2.toXML(memberProject)
+				.replaceAll(MEMBER_DIGEST_IDENTITY, "");
+
+		return Util.getDigestOf(memberText);
+
+	}
+
 	/**
 	 * Generate member project name.
 	 */
@@ -262,6 +446,86 @@ public class LayoutLogic implements PluginConstants {
 
 	}
 
+	/**
+	 * Layout module list stored by the last layout build.
+	 */
+	public static XmlFile moduleFile(final MavenModuleSet layoutProject) {
+		return new XmlFile(new File(layoutProject.getRootDir(), MODULE_FILE));
+	}
+
+	/**
+	 * Current layout module list: module name to existing family member
+	 * project name.
+	 */
+	public static Map<String, String> moduleMap(
+			final BuildContext<MavenModuleSetBuild> context,
+			final MavenModuleSet layoutProject) throws IOException {
+
+		final String familyID = ProjectIdentity.familyID(layoutProject);
+
+		final Map<String, String> moduleMap = new TreeMap<String, String>();
+
+		for (final MavenModule module : layoutProject.getDisabledModules(false)) {
+
+			if (isSameModuleName(layoutProject.getRootModule(), module)) {
+				continue;
+			}
+
+			final String memberName = memberName(context, layoutProject, module);
+
+			final MavenModuleSet memberProject = mavenProject(memberName);
+
+			if (memberProject == null) {
+				continue;
+			}
+
+			if (!familyID.equals(ProjectIdentity.familyID(memberProject))) {
+				continue;
+			}
+
+			moduleMap.put(module.getModuleName().toString(), memberName);
+
+		}
+
+		return moduleMap;
+
+	}
+
+	/**
+	 * Load layout module list stored by the last layout build.
+	 * 
+	 * @return module name to member project name, or null when missing
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, String> moduleMapLoad(
+			final MavenModuleSet layoutProject) throws IOException {
+
+		final XmlFile file = moduleFile(layoutProject);
+
+		if (!file.exists()) {
+			return null;
+		}
+
+		return (Map<String, String>) file.read();
+
+	}
+
+	/**
+	 * Store current layout module list for the next layout build.
+	 */
+	public static void moduleMapSave(
+			final BuildContext<MavenModuleSetBuild> context,
+			final MavenModuleSet layoutProject) throws IOException {
+
+		final Map<String, String> moduleMap = moduleMap(context, layoutProject);
+
+		moduleFile(layoutProject).write(moduleMap);
+
+		context.log("");
+		context.log("Module list stored: " + moduleMap.size());
+
+	}
+
 	/**
 	 * Layout build entry point.
 	 */
@@ -289,15 +553,56 @@ public class LayoutLogic implements PluginConstants {
 
 		ensureProjectView(context, layoutProject);
 
-		processLayout(context, layoutProject);
+		BuildEventLog.emit(context, "layout.started", "project", layoutName,
+				"action", action.getConfigAction());
 
-		processCascade(context, layoutProject, action);
+		final long timeStart = System.currentTimeMillis();
+
+		{
+			final long timePhase = phaseStart(context, "layout");
+			processLayout(context, layoutProject);
+			phaseFinish(context, "layout", timePhase);
+		}
 
-		processMemberList(context, layoutProject, action);
+		{
+			final long timePhase = phaseStart(context, "cascade");
+			processCascade(context, layoutProject, action);
+			phaseFinish(context, "cascade", timePhase);
+		}
+
+		{
+			final long timePhase = phaseStart(context, "members");
+			processMemberList(context, layoutProject, action);
+			phaseFinish(context, "members", timePhase);
+		}
+
+		BuildEventLog.emit(context, "layout.finished", "project", layoutName,
+				"action", action.getConfigAction(), "millis",
+				System.currentTimeMillis() - timeStart);
 
 		return true;
 	}
 
+	/**
+	 * Report layout phase finish, see {@link #phaseStart}.
+	 */
+	static void phaseFinish(final BuildContext<MavenModuleSetBuild> context,
+			final String phase, final long timeStart) {
+		BuildEventLog.emit(context, "phase.finished", "phase", phase,
+				"millis", System.currentTimeMillis() - timeStart);
+	}
+
+	/**
+	 * Report layout phase start.
+	 * 
+	 * @return phase start time
+	 */
+	static long phaseStart(final BuildContext<MavenModuleSetBuild> context,
+			final String phase) {
+		BuildEventLog.emit(context, "phase.started", "phase", phase);
+		return System.currentTimeMillis();
+	}
+
 	/**
 	 * Process cascade project create/update/delete.
 	 */
@@ -451,6 +756,14 @@ public class LayoutLogic implements PluginConstants {
 				projectUpdate.run();
 			}
 			break;
+		case SYNC:
+			if (ProjectIdentity.identity(layoutProject).cascadeProject() == null) {
+				context.logTab("Project missing, creating now.");
+				projectCreate.run();
+			} else {
+				context.logTab("Project present, sync skipped.");
+			}
+			break;
 		}
 
 	}
@@ -520,13 +833,29 @@ public class LayoutLogic implements PluginConstants {
 					+ action.getConfigAction());
 			break;
 		case CREATE:
-			processMemberListCreate(context, layoutProject);
+			try {
+				processMemberListCreate(context, layoutProject);
+			} finally {
+				moduleMapSave(context, layoutProject);
+			}
 			break;
 		case DELETE:
 			processMemberListDelete(context, layoutProject);
+			moduleFile(layoutProject).delete();
 			break;
 		case UPDATE:
-			processMemberListUpdate(context, layoutProject);
+			try {
+				processMemberListUpdate(context, layoutProject);
+			} finally {
+				moduleMapSave(context, layoutProject);
+			}
+			break;
+		case SYNC:
+			try {
+				processMemberListSync(context, layoutProject);
+			} finally {
+				moduleMapSave(context, layoutProject);
+			}
 			break;
 		}
 
@@ -542,11 +871,28 @@ public class LayoutLogic implements PluginConstants {
 			final MavenModuleSet layoutProject //
 	) throws IOException {
 
-		final Jenkins jenkins = Jenkins.getInstance();
-
 		final List<MavenModule> moduleList = layoutProject
 				.getDisabledModules(false);
 
+		return processMemberListCreate(context, layoutProject, moduleList);
+
+	}
+
+	/**
+	 * Create member list for selected layout modules using name as
+	 * distinction.
+	 */
+	public static boolean processMemberListCreate(//
+			final BuildContext<MavenModuleSetBuild> context,//
+			final MavenModuleSet layoutProject, //
+			final List<MavenModule> moduleList //
+	) throws IOException {
+
+		final Jenkins jenkins = Jenkins.getInstance();
+
+		/** Created or adopted projects with their modules, in module order. */
+		final Map<MavenModuleSet, MavenModule> memberMap = new LinkedHashMap<MavenModuleSet, MavenModule>();
+
 		for (final MavenModule module : moduleList) {
 
 			final ModuleName moduleName = module.getModuleName();
@@ -567,31 +913,46 @@ public class LayoutLogic implements PluginConstants {
 
 			if (isProjectExists(memberName)) {
 
-				context.logErr("Project exists, create skipped: " + memberName);
+				final MavenModuleSet memberProject = mavenProject(memberName);
+
+				if (isOrphan(memberProject)) {
+					processMemberAdopt(context, memberProject);
+					memberMap.put(memberProject, module);
+				} else {
+					context.logErr("Project exists, create skipped: "
+							+ memberName);
+				}
 
 			} else {
 
 				context.logTab("Creating project: " + memberName);
 
-				/** Clone project via XML. */
+				/** Clone project via XML, jenkins item map is not concurrent. */
 				final TopLevelItem item = jenkins.copy(
 						(TopLevelItem) layoutProject, memberName);
 
-				final MavenModuleSet memberProject = (MavenModuleSet) item;
+				memberMap.put((MavenModuleSet) item, module);
 
-				processMemberUpdate(context, module, memberProject,
-						layoutProject);
-
-				processMemberValidate(context, memberProject);
+			}
 
-				ensureProjectView(context, memberProject);
+		}
 
-				context.logTab("Project created: " + memberName);
+		final List<String> failureList = new ArrayList<String>();
 
-			}
+		final List<MavenModuleSet> memberList = processMemberUpdateList(
+				context, layoutProject, memberMap, failureList);
 
+		for (final MavenModuleSet memberProject : memberList) {
+			context.log("");
+			context.log("Project created: " + memberProject.getName());
 		}
 
+		processMemberValidateList(context, layoutProject, memberList);
+
+		ensureProjectViewList(context, memberList);
+
+		checkMemberFailure(failureList);
+
 		return true;
 	}
 
@@ -623,6 +984,8 @@ public class LayoutLogic implements PluginConstants {
 
 			context.logTab("Deleting project.");
 
+			processMemberWorktreeRemove(context, memberProject);
+
 			try {
 				memberProject.delete();
 				context.logTab("Project deleted.");
@@ -637,6 +1000,121 @@ public class LayoutLogic implements PluginConstants {
 
 	}
 
+	/**
+	 * Sync member list with layout modules: compare against module list
+	 * stored by the last layout build, create members of added modules,
+	 * delete or orphan members of removed modules, keep the rest.
+	 */
+	public static boolean processMemberListSync( //
+			final BuildContext<MavenModuleSetBuild> context, //
+			final MavenModuleSet layoutProject //
+	) throws IOException {
+
+		final String familyID = ProjectIdentity.familyID(layoutProject);
+
+		Map<String, String> pastMap = moduleMapLoad(layoutProject);
+
+		if (pastMap == null) {
+
+			context.log("");
+			context.logErr("Module list missing, derive from member projects.");
+
+			pastMap = new TreeMap<String, String>();
+
+			for (final MavenModuleSet memberProject : ProjectIdentity
+					.memberProjectList(familyID)) {
+				try {
+					pastMap.put(moduleName(memberProject).toString(),
+							memberProject.getName());
+				} catch (final Exception e) {
+					context.logErr("Member module unknown, skip: "
+							+ memberProject.getName());
+				}
+			}
+
+		}
+
+		final List<MavenModule> moduleList = layoutProject
+				.getDisabledModules(false);
+
+		/** Modules in the layout now. */
+		final Set<String> moduleNameSet = new HashSet<String>();
+
+		/** Modules not in the stored list. */
+		final List<MavenModule> createList = new ArrayList<MavenModule>();
+
+		for (final MavenModule module : moduleList) {
+
+			if (isSameModuleName(layoutProject.getRootModule(), module)) {
+				continue;
+			}
+
+			final String moduleName = module.getModuleName().toString();
+
+			moduleNameSet.add(moduleName);
+
+			if (!pastMap.containsKey(moduleName)) {
+				createList.add(module);
+			}
+
+		}
+
+		int countRemoved = 0;
+
+		for (final Map.Entry<String, String> entry : pastMap.entrySet()) {
+
+			if (moduleNameSet.contains(entry.getKey())) {
+				continue;
+			}
+
+			countRemoved++;
+
+			context.log("");
+			context.log("Module removed: " + entry.getKey());
+			context.log("Member project: " + entry.getValue());
+
+			final MavenModuleSet memberProject = mavenProject(entry.getValue());
+
+			if (memberProject == null
+					|| !familyID.equals(ProjectIdentity
+							.familyID(memberProject))) {
+				context.logErr("Member project missing, skip.");
+				continue;
+			}
+
+			context.logTab("Project identity: "
+					+ ProjectIdentity.identity(memberProject));
+
+			processMemberWorktreeRemove(context, memberProject);
+
+			try {
+				if (context.layoutOptions().getOrphanRemovedMembers()) {
+					processMemberOrphan(context, memberProject);
+				} else {
+					context.logTab("Deleting project.");
+					memberProject.delete();
+					context.logTab("Project deleted.");
+				}
+			} catch (final Exception e) {
+				context.logExc(e);
+				context.logErr("Failed to remove project.");
+			}
+
+		}
+
+		processMemberListCreate(context, layoutProject, createList);
+
+		context.log("");
+		context.log("Member sync summary:" //
+				+ " added=" + createList.size() //
+				+ " removed=" + countRemoved //
+				+ " unchanged=" + (moduleNameSet.size() - createList.size()) //
+		);
+
+		return true;
+
+	}
+
 	/**
 	 * Update member list using identity as distinction.
 	 */
@@ -655,6 +1133,12 @@ public class LayoutLogic implements PluginConstants {
 			return false;
 		}
 
+		/** Updated projects with their modules, in family order. */
+		final Map<MavenModuleSet, MavenModule> memberMap = new LinkedHashMap<MavenModuleSet, MavenModule>();
+
+		int countUnchanged = 0;
+		int countSkipped = 0;
+
 		for (final MavenModuleSet memberProject : memberProjectList) {
 
 			context.log("");
@@ -663,8 +1147,6 @@ public class LayoutLogic implements PluginConstants {
 			context.logTab("Project identity: "
 					+ ProjectIdentity.identity(memberProject));
 
-			context.logTab("Updating project.");
-
 			final ModuleName memberName = moduleName(memberProject);
 
 			final MavenModule memberModule = layoutProject.getItem(memberName
@@ -673,24 +1155,178 @@ public class LayoutLogic implements PluginConstants {
 			if (memberModule == null) {
 				context.logErr("Missing layout module, skip update: "
 						+ memberName);
+				countSkipped++;
 				continue;
 			}
 
-			processMemberUpdate(context, memberModule, memberProject,
-					layoutProject);
+			final String memberDigest = memberDigest(context, layoutProject,
+					memberModule);
 
-			processMemberValidate(context, memberProject);
+			final ProjectIdentity memberIdentity = ProjectIdentity
+					.identity(memberProject);
 
-			ensureProjectView(context, memberProject);
+			if (memberDigest.equals(memberIdentity.memberDigest())) {
+				if (memberConfigDigest(memberProject).equals(
+						memberIdentity.configDigest())) {
+					context.logTab("Layout config unchanged, skip update.");
+					countUnchanged++;
+					continue;
+				}
+				context.logTab("Member config changed manually, update.");
+			}
+
+			memberMap.put(memberProject, memberModule);
 
-			context.logTab("Project updated: " + memberName);
+		}
+
+		final List<String> failureList = new ArrayList<String>();
 
+		final List<MavenModuleSet> memberList = processMemberUpdateList(
+				context, layoutProject, memberMap, failureList);
+
+		for (final MavenModuleSet memberProject : memberList) {
+			context.log("");
+			context.log("Project updated: " + memberProject.getName());
 		}
 
+		processMemberValidateList(context, layoutProject, memberList);
+
+		ensureProjectViewList(context, memberList);
+
+		context.log("");
+		context.log("Member update summary:" //
+				+ " updated=" + memberList.size() //
+				+ " unchanged=" + countUnchanged //
+				+ " skipped=" + countSkipped //
+				+ " failed=" + failureList.size() //
+		);
+
+		checkMemberFailure(failureList);
+
 		return true;
 
 	}
 
+	/**
+	 * Orphan member project left by layout sync: no identity, marked
+	 * description.
+	 */
+	public static boolean isOrphan(final MavenModuleSet project) {
+		if (project == null || ProjectIdentity.hasIdentity(project)) {
+			return false;
+		}
+		final String description = project.getDescription();
+		return description != null && description.contains(ORPHAN_MARKER);
+	}
+
+	/**
+	 * Return orphan project to the family when its module is added back:
+	 * strip description marker, enable builds; identity is provided by
+	 * member update.
+	 */
+	public static void processMemberAdopt(//
+			final BuildContext<MavenModuleSetBuild> context,//
+			final MavenModuleSet memberProject //
+	) throws IOException {
+
+		context.logTab("Adopting orphan project.");
+
+		final BulkChange change = new BulkChange(memberProject);
+
+		try {
+
+			final String description = memberProject.getDescription()
+					.replace(ORPHAN_MARKER, "");
+			memberProject.setDescription(description);
+
+			memberProject.makeDisabled(false);
+
+			change.commit();
+
+		} finally {
+			change.abort();
+		}
+
+		context.logTab("Project adopted.");
+
+	}
+
+	/**
+	 * Detach member project from the family: erase identity, mark
+	 * description, disable builds; build history is preserved.
+	 */
+	public static void processMemberOrphan(//
+			final BuildContext<MavenModuleSetBuild> context,//
+			final MavenModuleSet memberProject //
+	) throws IOException {
+
+		context.logTab("Orphaning project.");
+
+		final BulkChange change = new BulkChange(memberProject);
+
+		try {
+
+			memberProject.removeProperty(ProjectIdentity.class);
+
+			final String description = memberProject.getDescription()
+					+ ORPHAN_MARKER;
+			memberProject.setDescription(description);
+
+			memberProject.makeDisabled(true);
+
+			change.commit();
+
+		} finally {
+			change.abort();
+		}
+
+		context.logTab("Project orphaned.");
+
+	}
+
+	/**
+	 * Remove member worktree and its branch from the layout repository, when
+	 * members are using worktrees.
+	 */
+	public static void processMemberWorktreeRemove(//
+			final BuildContext<MavenModuleSetBuild> context,//
+			final MavenModuleSet memberProject //
+	) {
+
+		if (!PluginScm.isWorktree(context, memberProject)) {
+			return;
+		}
+
+		final String customWorkspace = memberProject.getCustomWorkspace();
+		if (customWorkspace == null) {
+			return;
+		}
+
+		context.logTab("Removing worktree.");
+
+		final WorkspaceLock lock = WorkspaceLock.ensure(ProjectIdentity
+				.familyID(memberProject));
+
+		try {
+			final WorkspaceLock.Hold hold = lock.write();
+			try {
+				/** Worker threads have no current computer. */
+				final FilePath nodeRoot = context.build().getBuiltOn()
+						.getRootPath();
+				PluginScm.scmWorktreeRemove(context, context.build()
+						.getWorkspace(), nodeRoot.child(customWorkspace)
+						.getRemote(), PluginScm.localBranchName(context,
+						memberProject));
+			} finally {
+				hold.release();
+			}
+		} catch (final Exception e) {
+			context.logExc(e);
+			context.logErr("Failed to remove worktree.");
+		}
+
+	}
+
 	/**
 	 * Update configuration of existing member project based on the layout
 	 * project, with member specifics.
@@ -702,11 +1338,21 @@ public class LayoutLogic implements PluginConstants {
 			final MavenModuleSet layoutProject//
 	) throws IOException {
 
-		context.logTab("Clone config from layout into member.");
-		cloneConfig(layoutProject, memberProject);
+		if (context.layoutOptions().getUseLightweightSync()
+				&& ProjectIdentity.hasIdentity(memberProject)) {
+
+			context.logTab("Sync config from layout into member.");
+			syncConfig(layoutProject, memberProject);
+
+		} else {
+
+			context.logTab("Clone config from layout into member.");
+			cloneConfig(layoutProject, memberProject);
 
-		context.logTab("Remove layout identity from the member.");
-		memberProject.removeProperty(ProjectIdentity.class);
+			context.logTab("Remove layout identity from the member.");
+			memberProject.removeProperty(ProjectIdentity.class);
+
+		}
 
 		context.logTab("Update member SCM settings.");
 		SCM: {
@@ -752,22 +1398,42 @@ public class LayoutLogic implements PluginConstants {
 
 			if (context.layoutOptions().getUseSharedWorkspace()) {
 
-				final FilePath nodeRoot = Computer.currentComputer().getNode()
+				/** Worker threads have no current computer. */
+				final FilePath nodeRoot = context.build().getBuiltOn()
 						.getRootPath();
 
 				final FilePath layoutWorkspace = context.build().getWorkspace();
 
-				final String memberWorkspace = relativePath(
-						nodeRoot.getRemote(), layoutWorkspace.getRemote());
+				final String layoutPath = relativePath(nodeRoot.getRemote(),
+						layoutWorkspace.getRemote());
+
+				if (PluginScm.isWorktree(context.layoutOptions())) {
 
-				memberProject.setCustomWorkspace(memberWorkspace);
+					final String memberWorkspace = PluginScm.worktreePath(
+							layoutPath, memberProject.getName());
 
-				context.logTab("Member is sharing workspace with layout.");
+					memberProject.setCustomWorkspace(memberWorkspace);
+
+					context.logTab("Member is using worktree of layout: "
+							+ memberWorkspace);
+
+				} else {
+
+					memberProject.setCustomWorkspace(layoutPath);
+
+					context.logTab("Member is sharing workspace with layout.");
+
+				}
 
 			} else {
 
 				context.logTab("Member is using its own private workspace.");
 
+				if (context.layoutOptions().getUseSparseCheckout()) {
+					context.logTab("Member is using sparse checkout: "
+							+ memberModule.getRelativePath());
+				}
+
 			}
 		}
 
@@ -787,6 +1453,9 @@ public class LayoutLogic implements PluginConstants {
 			final ProjectIdentity memberdentity = ProjectIdentity
 					.ensureMemberIdentity(layoutProject, memberProject);
 
+			memberdentity.memberDigest(memberDigest(context, layoutProject,
+					memberModule));
+
 			context.logTab("Identity: " + memberdentity);
 		}
 
@@ -808,6 +1477,12 @@ public class LayoutLogic implements PluginConstants {
 			memberProject.setScmCheckoutStrategy(strategy);
 		}
 
+		context.logTab("Record member config digest.");
+		{
+			ProjectIdentity.identity(memberProject).configDigest(
+					memberConfigDigest(memberProject));
+		}
+
 		context.logTab("Persist project changes.");
 		{
 			memberProject.save();
@@ -815,6 +1490,127 @@ public class LayoutLogic implements PluginConstants {
 
 	}
 
+	/**
+	 * Fail layout build after successful members were fully processed.
+	 */
+	public static void checkMemberFailure(final List<String> failureList)
+			throws IOException {
+		if (!failureList.isEmpty()) {
+			throw new IOException("Member update failure: " + failureList);
+		}
+	}
+
+	/**
+	 * Update member projects on a bounded worker pool.
+	 * <p>
+	 * Each member is updated in a bulk change, so its configuration is
+	 * persisted once; member logs are buffered and reported in order.
+	 * 
+	 * @param failureList
+	 *            receives names of projects which failed to update
+	 * @return successfully updated projects, in map order
+	 */
+	public static List<MavenModuleSet> processMemberUpdateList(//
+			final BuildContext<MavenModuleSetBuild> context,//
+			final MavenModuleSet layoutProject,//
+			final Map<MavenModuleSet, MavenModule> memberMap, //
+			final List<String> failureList //
+	) throws IOException {
+
+		final List<MavenModuleSet> memberList = new ArrayList<MavenModuleSet>();
+
+		if (memberMap.isEmpty()) {
+			return memberList;
+		}
+
+		final int workerCount = Math.max(1,
+				Math.min(MEMBER_WORKER_LIMIT, memberMap.size()));
+
+		context.log("");
+		context.log("Member update: projects=" + memberMap.size()
+				+ " workers=" + workerCount);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				workerCount, new DaemonThreadFactory());
+
+		final Map<MavenModuleSet, ByteArrayOutputStream> bufferMap = new LinkedHashMap<MavenModuleSet, ByteArrayOutputStream>();
+
+		final Map<MavenModuleSet, Future<Boolean>> futureMap = new LinkedHashMap<MavenModuleSet, Future<Boolean>>();
+
+		try {
+
+			for (final Map.Entry<MavenModuleSet, MavenModule> entry : memberMap
+					.entrySet()) {
+
+				final MavenModuleSet memberProject = entry.getKey();
+				final MavenModule memberModule = entry.getValue();
+
+				final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+				final BuildContext<MavenModuleSetBuild> memberContext = new BuildContext<MavenModuleSetBuild>(
+						context.build(), context.launcher(),
+						new StreamBuildListener(buffer));
+
+				final Callable<Boolean> task = new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						final SecurityContext security = ACL
+								.impersonate(ACL.SYSTEM);
+						final BulkChange change = new BulkChange(memberProject);
+						try {
+							memberContext.log("");
+							memberContext.log("Member project: "
+									+ memberProject.getName());
+							processMemberUpdate(memberContext, memberModule,
+									memberProject, layoutProject);
+							change.commit();
+							return true;
+						} catch (final Throwable e) {
+							memberContext.logExc(e);
+							memberContext.logErr("Failed to update project.");
+							return false;
+						} finally {
+							change.abort();
+							SecurityContextHolder.setContext(security);
+						}
+					}
+				};
+
+				bufferMap.put(memberProject, buffer);
+				futureMap.put(memberProject, executor.submit(task));
+
+			}
+
+			for (final Map.Entry<MavenModuleSet, Future<Boolean>> entry : futureMap
+					.entrySet()) {
+
+				final MavenModuleSet memberProject = entry.getKey();
+
+				final boolean isSuccess = entry.getValue().get();
+
+				context.listener().getLogger()
+						.write(bufferMap.get(memberProject).toByteArray());
+
+				if (isSuccess) {
+					memberList.add(memberProject);
+				} else {
+					failureList.add(memberProject.getName());
+				}
+
+			}
+
+			return memberList;
+
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (final ExecutionException e) {
+			throw new IOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
 	/**
 	 * Validate newly created member projects.
 	 * <p>
@@ -835,7 +1631,9 @@ public class LayoutLogic implements PluginConstants {
 
 			final List<Action> actionList = mavenValidateGoals(context);
 
-			if (options.getUseSharedWorkspace()) {
+			/** Member worktree needs checkout. */
+			if (options.getUseSharedWorkspace()
+					&& !PluginScm.isWorktree(options)) {
 				actionList.add(new CheckoutSkipAction());
 			}
 
@@ -849,6 +1647,119 @@ public class LayoutLogic implements PluginConstants {
 
 	}
 
+	/**
+	 * Validate member projects, either one by one, or with a single layout
+	 * reactor build.
+	 */
+	public static void processMemberValidateList( //
+			final BuildContext<MavenModuleSetBuild> context, //
+			final MavenModuleSet layoutProject, //
+			final List<MavenModuleSet> memberList //
+	) {
+
+		if (memberList.isEmpty()) {
+			return;
+		}
+
+		if (context.layoutOptions().getUseReactorValidation()) {
+			processReactorValidate(context, layoutProject, memberList);
+			return;
+		}
+
+		for (final MavenModuleSet memberProject : memberList) {
+			context.log("");
+			context.log("Member project: " + memberProject.getName());
+			processMemberValidate(context, memberProject);
+		}
+
+	}
+
+	/**
+	 * Validate member projects with a single reactor build of the layout
+	 * project; do not wait for completion.
+	 * <p>
+	 * Module results are recorded on members by
+	 * {@link #processMemberValidateRecord}.
+	 */
+	public static void processReactorValidate( //
+			final BuildContext<MavenModuleSetBuild> context, //
+			final MavenModuleSet layoutProject, //
+			final List<MavenModuleSet> memberList //
+	) {
+
+		context.log("");
+		context.log("Reactor validation: " + layoutProject.getAbsoluteUrl());
+		context.logTab("Member count: " + memberList.size());
+
+		final LayoutOptions options = context.layoutOptions();
+
+		if (options.getBuildAfterLayout()) {
+
+			/** Own cause: layout cause would run layout logic again. */
+			final Cause cause = new Cause.UpstreamCause(
+					(Run<?, ?>) context.build());
+
+			final List<Action> actionList = mavenValidateGoals(context);
+
+			actionList.add(new LayoutLogicAction());
+
+			actionList.add(new LayoutValidateAction());
+
+			/** Layout build in progress, reactor build will be queued. */
+			layoutProject.scheduleBuild2(0, cause, actionList);
+
+			context.logTab("Building after layout.");
+
+		}
+
+	}
+
+	/**
+	 * Record module results of finished reactor validation build on member
+	 * projects: result in member identity, badge on latest member build.
+	 */
+	public static void processMemberValidateRecord(
+			final BuildContext<MavenModuleSetBuild> context) throws IOException {
+
+		final MavenModuleSetBuild layoutBuild = context.build();
+
+		final String familyID = ProjectIdentity.familyID(layoutBuild
+				.getProject());
+
+		context.log("");
+		context.log("Record member validation.");
+
+		for (final MavenModuleSet memberProject : ProjectIdentity
+				.memberProjectList(familyID)) {
+
+			final MavenBuild moduleBuild = MemberValidateAction
+					.memberValidateBuild(layoutBuild, memberProject);
+
+			if (moduleBuild == null) {
+				context.logErr("Module build missing: "
+						+ memberProject.getName());
+				continue;
+			}
+
+			final Result result = moduleBuild.getResult();
+
+			context.logTab(memberProject.getName() + ": " + result);
+
+			ProjectIdentity.identity(memberProject).validate(result,
+					moduleBuild.getUrl());
+			memberProject.save();
+
+			final MavenModuleSetBuild memberBuild = memberProject
+					.getLastBuild();
+			if (memberBuild != null && result != null) {
+				MemberValidateBadge.ensure(memberBuild, result);
+				memberBuild.save();
+			}
+
+		}
+
+	}
+
 	private LayoutLogic() {
 
 	}
@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.maven.MavenModuleSet;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.StreamBuildListener;
+import hudson.model.TaskListener;
+import hudson.model.AbstractProject;
+import hudson.plugins.git.GitSCM;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Periodic git repository maintenance of idle cascade family workspaces.
+ * <p>
+ * Deletes stale local tags and remote tracking branches, packs references
+ * and repacks loose objects when thresholds are crossed.
+ *
+ * @author Andrei Pozolotin
+ */
+@Extension
+public class LayoutMaintenance extends AsyncPeriodicWork implements
+		PluginConstants {
+
+	/**
+	 * Loose object count which triggers repack.
+	 */
+	public static final int LOOSE_OBJECT_LIMIT = Integer.getInteger(
+			LayoutMaintenance.class.getName() + ".looseObjectLimit", 1000);
+
+	/**
+	 * Loose reference count which triggers reference packing.
+	 */
+	public static final int LOOSE_REF_LIMIT = Integer.getInteger(
+			LayoutMaintenance.class.getName() + ".looseRefLimit", 100);
+
+	/**
+	 * Maintenance period.
+	 */
+	public static final long RECURRENCE_PERIOD = Long.getLong(
+			LayoutMaintenance.class.getName() + ".recurrencePeriod", HOUR);
+
+	/**
+	 * Maintain repository in a workspace.
+	 */
+	public static void maintain(final BuildLogger logger,
+			final PluginScmBackend backend, final FilePath workspace,
+			final String remoteName) throws IOException, InterruptedException {
+
+		/** Remote operation. */
+		final FileCallable<Void> callable = new FileCallable<Void>() {
+
+			private static final long serialVersionUID = 1L;
+
+			public Void invoke(final File basedir, final VirtualChannel channel)
+					throws IOException, InterruptedException {
+
+				if (!backend.isRepository(basedir)) {
+					logger.logTab("repository missing: " + basedir);
+					return null;
+				}
+
+				logger.logTab("repository: " + basedir);
+
+				final Set<String> pruneSet = backend.pruneRefs(basedir,
+						remoteName);
+				logger.logTab("pruned refs: " + pruneSet);
+
+				final int refCount = PluginScmGit.looseRefCount(basedir);
+				logger.logTab("loose refs: " + refCount);
+
+				final int objectCount = PluginScmGit.looseObjectCount(basedir);
+				logger.logTab("loose objects: " + objectCount);
+
+				final boolean packRefs = refCount > LOOSE_REF_LIMIT;
+				final boolean packObjects = objectCount > LOOSE_OBJECT_LIMIT;
+
+				if (packRefs || packObjects) {
+					backend.pack(basedir, packRefs, packObjects);
+					logger.logTab("packed: refs="
+							+ PluginScmGit.looseRefCount(basedir)
+							+ " objects="
+							+ PluginScmGit.looseObjectCount(basedir));
+				}
+
+				return null;
+			}
+		};
+
+		workspace.act(callable);
+
+	}
+
+	/**
+	 * Node and repository folder of a workspace.
+	 */
+	public static String repository(final FilePath workspace)
+			throws IOException, InterruptedException {
+
+		/** Remote operation. */
+		final FileCallable<String> callable = new FileCallable<String>() {
+
+			private static final long serialVersionUID = 1L;
+
+			public String invoke(final File basedir,
+					final VirtualChannel channel) throws IOException,
+					InterruptedException {
+				return PluginScmGit.gitDir(basedir).getPath();
+			}
+		};
+
+		final Computer computer = workspace.toComputer();
+
+		return (computer == null ? "" : computer.getName()) + ":"
+				+ workspace.act(callable);
+
+	}
+
+	/**
+	 * Distinct workspaces of the family projects.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static Map<String, FilePath> workspaceMap(
+			final ProjectIdentity identity) {
+		final Map<String, FilePath> map = new TreeMap<String, FilePath>();
+		for (final AbstractProject project : identity.familyProjectList()) {
+			if (!(project instanceof MavenModuleSet)) {
+				continue;
+			}
+			final FilePath workspace = project.getSomeWorkspace();
+			if (workspace == null) {
+				continue;
+			}
+			map.put(workspace.getRemote(), workspace);
+		}
+		return map;
+	}
+
+	public LayoutMaintenance() {
+		super("Cascade Layout Maintenance");
+	}
+
+	@Override
+	protected void execute(final TaskListener listener) throws IOException,
+			InterruptedException {
+
+		final BuildLogger logger = new BuildLogger(new StreamBuildListener(
+				listener.getLogger()));
+
+		for (final MavenModuleSet project : PluginUtilities
+				.mavenProjectList()) {
+
+			final ProjectIdentity identity = ProjectIdentity.identity(project);
+
+			if (identity == null || identity.role() != ProjectRole.LAYOUT) {
+				continue;
+			}
+
+			final LayoutBuildWrapper wrapper = LayoutBuildWrapper
+					.wrapper(project);
+
+			if (wrapper == null) {
+				continue;
+			}
+
+			final LayoutOptions options = wrapper.getLayoutOptions();
+
+			if (!options.getUseScmMaintenance()) {
+				continue;
+			}
+
+			if (PluginScm.checkScm(project) != null) {
+				continue;
+			}
+
+			try {
+				maintain(logger, identity, project, options);
+			} catch (final Exception e) {
+				logger.logErr("maintenance failure: " + project.getName());
+				logger.logExc(e);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Maintain family workspaces while the family is idle.
+	 */
+	public void maintain(final BuildLogger logger,
+			final ProjectIdentity identity, final MavenModuleSet layoutProject,
+			final LayoutOptions options) throws IOException,
+			InterruptedException {
+
+		final RunLock lock = RunLock.ensure(identity.getFamilyID());
+
+		if (!lock.isIdle()) {
+			logger.log("Family is active, skip maintenance: "
+					+ layoutProject.getName());
+			return;
+		}
+
+		final PluginScmBackend backend = PluginScm.backend(options);
+		final String remoteName = PluginScm.remoteName((GitSCM) layoutProject
+				.getScm());
+
+		/** Same lock as shared workspace checkout, do not wait for it. */
+		final WorkspaceLock.Hold hold;
+		try {
+			hold = WorkspaceLock.ensure(identity.getFamilyID()).write(0);
+		} catch (final AbortException e) {
+			logger.log("Workspace is locked, skip maintenance: "
+					+ layoutProject.getName());
+			return;
+		}
+
+		try {
+
+			/** Family state could change while waiting for the lock. */
+			if (!lock.isIdle()) {
+				logger.log("Family is active, skip maintenance: "
+						+ layoutProject.getName());
+				return;
+			}
+
+			logger.log("Maintenance: " + layoutProject.getName());
+
+			final long timeStart = System.currentTimeMillis();
+
+			/** Worktree members share the layout repository. */
+			final Set<String> repositorySet = new HashSet<String>();
+
+			for (final FilePath workspace : workspaceMap(identity).values()) {
+				if (!workspace.exists()) {
+					continue;
+				}
+				if (!repositorySet.add(repository(workspace))) {
+					logger.logTab("repository maintained: " + workspace);
+					continue;
+				}
+				maintain(logger, backend, workspace, remoteName);
+			}
+
+			final long timeFinish = System.currentTimeMillis();
+
+			identity.log("Maintenance finished: "
+					+ (timeFinish - timeStart) + " ms");
+
+		} finally {
+			hold.release();
+		}
+
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return RECURRENCE_PERIOD;
+	}
+
+}
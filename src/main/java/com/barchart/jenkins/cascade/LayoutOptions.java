@@ -80,6 +80,25 @@ public class LayoutOptions extends AbstractDescribableImpl<LayoutOptions>
 	tokenVariable(MavenTokenMacro.TOKEN_ARTIFACT_ID) + "_MEMBER"//
 	;
 
+	/**
+	 * Extra repository paths always present in member sparse checkout.
+	 */
+	public static final String SPARSE_CHECKOUT_PATHS = //
+	"" //
+	;
+
+	/**
+	 * Default SCM backend, see {@link PluginScmType}.
+	 */
+	public static final String SCM_BACKEND = //
+	"jgit" //
+	;
+
+	/**
+	 * Default member build limit, no limit.
+	 */
+	public static final int MEMBER_BUILD_LIMIT = 0;
+
 	@Extension
 	public final static TheDescriptor META = new TheDescriptor();
 
@@ -98,6 +117,28 @@ public class LayoutOptions extends AbstractDescribableImpl<LayoutOptions>
 	private boolean useSharedWorkspace = true;
 	private boolean syncReleasePlugins = true;
 
+	private boolean useSparseCheckout = false;
+	private String sparseCheckoutPaths = SPARSE_CHECKOUT_PATHS;
+
+	private String scmBackend = SCM_BACKEND;
+
+	private boolean useScmMaintenance = false;
+
+	private boolean useLightweightSync = false;
+
+	private boolean useReactorValidation = false;
+
+	/**
+	 * Nullable: missing in configs stored before this option existed.
+	 */
+	private Boolean orphanRemovedMembers = true;
+
+	private boolean useGraphLayout = false;
+
+	private boolean useMemberWorktree = false;
+
+	private int memberBuildLimit = MEMBER_BUILD_LIMIT;
+
 	public LayoutOptions() {
 	}
 
@@ -112,7 +153,19 @@ public class LayoutOptions extends AbstractDescribableImpl<LayoutOptions>
 			//
 			final boolean useSharedWorkspace, //
 			final boolean buildAfterLayout, //
-			final boolean syncReleasePlugins //
+			final boolean syncReleasePlugins, //
+			//
+			final boolean useSparseCheckout, //
+			final String sparseCheckoutPaths, //
+			//
+			final String scmBackend, //
+			final boolean useScmMaintenance, //
+			final boolean useLightweightSync, //
+			final boolean useReactorValidation, //
+			final boolean orphanRemovedMembers, //
+			final boolean useGraphLayout, //
+			final boolean useMemberWorktree, //
+			final int memberBuildLimit //
 	//
 	) {
 
@@ -125,6 +178,18 @@ public class LayoutOptions extends AbstractDescribableImpl<LayoutOptions>
 		this.buildAfterLayout = buildAfterLayout;
 		this.syncReleasePlugins = syncReleasePlugins;
 
+		this.useSparseCheckout = useSparseCheckout;
+		this.sparseCheckoutPaths = sparseCheckoutPaths;
+
+		this.scmBackend = scmBackend;
+		this.useScmMaintenance = useScmMaintenance;
+		this.useLightweightSync = useLightweightSync;
+		this.useReactorValidation = useReactorValidation;
+		this.orphanRemovedMembers = orphanRemovedMembers;
+		this.useGraphLayout = useGraphLayout;
+		this.useMemberWorktree = useMemberWorktree;
+		this.memberBuildLimit = memberBuildLimit;
+
 	}
 
 	/**
@@ -165,6 +230,15 @@ public class LayoutOptions extends AbstractDescribableImpl<LayoutOptions>
 		return mavenValidateGoals;
 	}
 
+	/**
+	 * Maximum number of member builds running at once in the family, or 0
+	 * for no limit.
+	 */
+	@Jelly
+	public int getMemberBuildLimit() {
+		return memberBuildLimit;
+	}
+
 	/**
 	 * Member project naming convention.
 	 */
@@ -173,6 +247,89 @@ public class LayoutOptions extends AbstractDescribableImpl<LayoutOptions>
 		return memberProjectName;
 	}
 
+	/**
+	 * On layout sync, keep members of removed modules as orphan projects
+	 * instead of deleting them.
+	 */
+	@Jelly
+	public boolean getOrphanRemovedMembers() {
+		return orphanRemovedMembers;
+	}
+
+	/**
+	 * Apply defaults of options missing in stored config.
+	 */
+	protected Object readResolve() {
+		if (orphanRemovedMembers == null) {
+			orphanRemovedMembers = true;
+		}
+		return this;
+	}
+
+	/**
+	 * SCM backend used for layout and member repository operations.
+	 */
+	@Jelly
+	public String getScmBackend() {
+		return scmBackend;
+	}
+
+	/**
+	 * Extra repository paths for member sparse checkout, one per line.
+	 */
+	@Jelly
+	public String getSparseCheckoutPaths() {
+		return sparseCheckoutPaths;
+	}
+
+	/**
+	 * Member projects with private workspace use git sparse checkout.
+	 */
+	@Jelly
+	public boolean getUseSparseCheckout() {
+		return useSparseCheckout;
+	}
+
+	/**
+	 * Render family graph images in JVM instead of graphviz dot.
+	 */
+	@Jelly
+	public boolean getUseGraphLayout() {
+		return useGraphLayout;
+	}
+
+	/**
+	 * Members of shared workspace layout use own git worktree.
+	 */
+	@Jelly
+	public boolean getUseMemberWorktree() {
+		return useMemberWorktree;
+	}
+
+	/**
+	 * Update existing member configuration in memory, w/o project reload.
+	 */
+	@Jelly
+	public boolean getUseLightweightSync() {
+		return useLightweightSync;
+	}
+
+	/**
+	 * Validate member projects with a single layout reactor build.
+	 */
+	@Jelly
+	public boolean getUseReactorValidation() {
+		return useReactorValidation;
+	}
+
+	/**
+	 * Run periodic repository maintenance in idle family workspaces.
+	 */
+	@Jelly
+	public boolean getUseScmMaintenance() {
+		return useScmMaintenance;
+	}
+
 	/**
 	 * Layout and member projects share work space.
 	 */
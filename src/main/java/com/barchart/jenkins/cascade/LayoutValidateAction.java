@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.model.AbstractBuild;
+
+/**
+ * Marker for layout reactor builds which validate member projects.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class LayoutValidateAction extends AbstractAction {
+
+	/**
+	 * Check if build has reactor validation marker.
+	 */
+	public static boolean hasAction(final AbstractBuild<?, ?> build) {
+		return build.getAction(LayoutValidateAction.class) != null;
+	}
+
+	@Override
+	public String toString() {
+		return "Validate member projects.";
+	}
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Action;
+import hudson.model.BuildListener;
+import hudson.model.Node;
+import hudson.model.Result;
+import hudson.model.AbstractBuild;
+import hudson.tasks.Maven.MavenInstallation;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+import jenkins.mvn.GlobalSettingsProvider;
+import jenkins.mvn.SettingsProvider;
+
+/**
+ * Short maven goal invocations via long-lived maven daemon client, such as
+ * <a href="https://github.com/apache/maven-mvnd">mvnd</a>.
+ * <p>
+ * Daemon goals run from the cascade build directly in the member workspace,
+ * w/o scheduling a member maven build, so no fresh maven JVM is started per
+ * step. Output stays in the cascade console; result and console link are
+ * appended to the member cascade event log. Used only for pom.xml update
+ * goals, release runs as usual.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class MavenDaemon {
+
+	/**
+	 * Find goals of a member build action list, or null.
+	 */
+	public static MavenGoalsIntercept goals(final List<Action> actionList) {
+		for (final Action action : actionList) {
+			if (action instanceof MavenGoalsIntercept) {
+				return (MavenGoalsIntercept) action;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Should this member step invoke goals with maven daemon; member needs
+	 * existing workspace.
+	 */
+	public static boolean isDaemon(final BuildContext<CascadeBuild> context,
+			final MavenModuleSet project, final List<Action> actionList) {
+
+		if (!context.cascadeOptions().getUseMavenDaemon()) {
+			return false;
+		}
+
+		if (goals(actionList) == null) {
+			return false;
+		}
+
+		if (PluginScm.workspace(context, project) == null) {
+			context.logTab("daemon: no member workspace, use member build");
+			return false;
+		}
+
+		for (final Action action : actionList) {
+			if (action instanceof DoParentBadge
+					|| action instanceof DoDependencyBadge) {
+				return true;
+			}
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Run member goals with daemon client in member workspace with member
+	 * maven environment: JDK, maven installation, MAVEN_OPTS, settings and
+	 * local repository; holds family workspace write lock only for shared
+	 * workspace.
+	 */
+	public static Result process(final BuildContext<CascadeBuild> context,
+			final MavenModuleSet project, final List<Action> actionList)
+			throws IOException, InterruptedException {
+
+		final AbstractBuild<?, ?> build = context.build();
+		final BuildListener listener = context.listener();
+
+		final FilePath workspace = PluginScm.workspace(context, project);
+		final Node node = workspace.toComputer() == null ? build.getBuiltOn()
+				: workspace.toComputer().getNode();
+
+		final EnvVars environment = project.getEnvironment(node, listener);
+
+		final MavenInstallation maven = project.getMaven();
+		if (maven != null) {
+			maven.forNode(node, listener).forEnvironment(environment)
+					.buildEnvVars(environment);
+		}
+
+		final String mavenOpts = project.getMavenOpts();
+		if (mavenOpts != null) {
+			environment.put("MAVEN_OPTS", environment.expand(mavenOpts));
+		}
+
+		final FilePath pomFile = workspace.child(project
+				.getRootPOM(environment));
+
+		final ArgumentListBuilder command = new ArgumentListBuilder();
+		command.add(Util.tokenize(context.cascadeOptions()
+				.getMavenDaemonCommand()));
+		command.add("--batch-mode");
+		command.add("--file", pomFile.getName());
+
+		final String settings = SettingsProvider.getSettingsRemotePath(
+				project.getSettings(), build, listener);
+		if (settings != null) {
+			command.add("--settings", settings);
+		}
+
+		final String globalSettings = GlobalSettingsProvider
+				.getSettingsRemotePath(project.getGlobalSettings(), build,
+						listener);
+		if (globalSettings != null) {
+			command.add("--global-settings", globalSettings);
+		}
+
+		/** Locator needs a member build, such as the one of the workspace. */
+		final MavenModuleSetBuild lastBuild = project.getLastBuild();
+		if (lastBuild != null) {
+			final FilePath localRepo = project.getLocalRepository().locate(
+					lastBuild);
+			if (localRepo != null) {
+				command.add("-Dmaven.repo.local=" + localRepo.getRemote());
+			}
+		}
+
+		command.add(Util.tokenize(environment.expand(goals(actionList)
+				.toString())));
+
+		context.logTab("daemon: " + command);
+
+		PluginMetrics.count("maven.daemon.invocations");
+
+		BuildEventLog.emit(context, "maven.daemon.started", "project",
+				project.getName(), "command", command);
+
+		final long timeStart = System.currentTimeMillis();
+
+		final WorkspaceLock.Hold hold;
+		if (context.layoutOptions().getUseSharedWorkspace()) {
+			hold = WorkspaceLock.ensure(ProjectIdentity.familyID(project))
+					.write();
+			context.logTab(hold.toString());
+		} else {
+			hold = null;
+		}
+
+		final int status;
+		try {
+			status = workspace.createLauncher(listener).launch() //
+					.cmds(command) //
+					.envs(environment) //
+					.pwd(pomFile.getParent()) //
+					.stdout(listener) //
+					.join();
+		} finally {
+			if (hold != null) {
+				context.logTab("write lock hold: " + hold.release() + " ms");
+			}
+		}
+
+		final long millis = System.currentTimeMillis() - timeStart;
+
+		final Result result = status == 0 ? Result.SUCCESS : Result.FAILURE;
+
+		PluginMetrics.since("maven.daemon.duration", timeStart);
+		PluginMetrics.count("maven.daemon.result." + result);
+
+		BuildEventLog.emit(context, "maven.daemon.completed", "project",
+				project.getName(), "status", status, "millis", millis);
+
+		context.logTab("result: " + result);
+
+		final ProjectIdentity identity = ProjectIdentity.identity(project);
+		if (identity != null) {
+			identity.log("Maven daemon: " + result + " millis=" + millis
+					+ " console=" + build.getAbsoluteUrl() + "console");
+			project.save();
+		}
+
+		return result;
+
+	}
+
+	private MavenDaemon() {
+	}
+
+}
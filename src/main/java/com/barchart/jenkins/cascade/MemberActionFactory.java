@@ -50,12 +50,17 @@ public class MemberActionFactory extends TransientProjectActionFactory {
 
 		switch (role) {
 		case CASCADE:
+			actionList.add(new GraphFamilyAction(identity));
+			actionList.add(new CascadeTrendAction(identity));
 			break;
 		case MEMBER:
 			actionList.add(new MemberBuildAction(identity));
 			actionList.add(new MemberViewAction(identity));
+			actionList.add(new MemberValidateAction(identity));
 			break;
 		case LAYOUT:
+			actionList.add(new GraphFamilyAction(identity));
+			actionList.add(new CascadeTrendAction(identity));
 			break;
 		}
 
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.maven.MavenBuild;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Result;
+
+import java.util.Map;
+
+/**
+ * Show member module result from the latest layout reactor validation
+ * build, as recorded in member identity.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class MemberValidateAction extends AbstractAction {
+
+	/**
+	 * Member module build from the layout reactor validation build.
+	 */
+	public static MavenBuild memberValidateBuild(
+			final MavenModuleSetBuild layoutBuild,
+			final MavenModuleSet memberProject) {
+
+		/** Member project is nested in the layout project. */
+		final String modulePath = PluginScm.sparseModulePath(memberProject
+				.getRootPOM(null));
+
+		final Map<MavenModule, MavenBuild> moduleMap = layoutBuild
+				.getModuleLastBuilds();
+
+		for (final Map.Entry<MavenModule, MavenBuild> entry : moduleMap
+				.entrySet()) {
+			if (modulePath.equals(entry.getKey().getRelativePath())) {
+				return entry.getValue();
+			}
+		}
+
+		return null;
+
+	}
+
+	private final ProjectIdentity identity;
+
+	public MemberValidateAction( //
+			final ProjectIdentity identity //
+	) {
+		this.identity = identity;
+	}
+
+	@Override
+	public String getDisplayName() {
+		final Result result = identity.validateResult();
+		if (result == null) {
+			return null;
+		}
+		return "Validation: " + result;
+	}
+
+	/**
+	 * Module result ball, hidden without validation result.
+	 */
+	@Override
+	public String getIconFileName() {
+		final Result result = identity.validateResult();
+		if (result == null) {
+			return null;
+		}
+		return result.color.getImage();
+	}
+
+	@Jelly
+	public ProjectIdentity getIdentity() {
+		return identity;
+	}
+
+	/**
+	 * Link to module build, relative to context root.
+	 */
+	@Override
+	public String getUrlName() {
+		final String url = identity.validateURL();
+		if (url == null) {
+			return null;
+		}
+		return "/" + url;
+	}
+
+}
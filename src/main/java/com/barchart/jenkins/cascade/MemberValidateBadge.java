@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.model.Result;
+import hudson.model.AbstractBuild;
+
+/**
+ * Member module result from layout reactor validation, shown on the latest
+ * member build.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class MemberValidateBadge extends AbstractBadge {
+
+	/**
+	 * Replace validation badge of a member build.
+	 */
+	public static void ensure(final AbstractBuild<?, ?> build,
+			final Result result) {
+		build.getActions().removeAll(
+				build.getActions(MemberValidateBadge.class));
+		build.addAction(new MemberValidateBadge(result));
+	}
+
+	private final Result result;
+
+	public MemberValidateBadge(final Result result) {
+		super("Validation: " + result, null);
+		this.result = result;
+	}
+
+	/**
+	 * Result ball.
+	 */
+	@Override
+	public String getIconFileName() {
+		return "/images/16x16/" + result.color.getImage();
+	}
+
+	@Jelly
+	public Result getResult() {
+		return result;
+	}
+
+}
@@ -12,6 +12,7 @@ import hudson.Plugin;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
+import hudson.model.Run;
 
 import java.util.logging.Logger;
 
@@ -37,6 +38,11 @@ public class PluginActivator extends Plugin implements
 	@Extension
 	public static final TheDescriptor META = new TheDescriptor();
 
+	/**
+	 * Not an extension point in this jenkins version.
+	 */
+	private final GraphFamilyCache.ScmTracker scmTracker = new GraphFamilyCache.ScmTracker();
+
 	public static PluginActivator get() {
 		return Hudson.getInstance().getPlugin(PluginActivator.class);
 	}
@@ -60,11 +66,22 @@ public class PluginActivator extends Plugin implements
 			GraphProjectAction.init();
 		}
 
+		scmTracker.register();
+
+		/** Short element name in build records. */
+		Run.XSTREAM.alias("cascade-result", CascadeResult.class);
+
+		PluginMetrics.register();
+
 	}
 
 	@Override
 	public void stop() throws Exception {
 
+		scmTracker.unregister();
+
+		PluginMetrics.unregister();
+
 		save();
 		super.stop();
 		log.info("### Stop.");
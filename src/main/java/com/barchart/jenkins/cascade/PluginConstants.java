@@ -60,6 +60,20 @@ public interface PluginConstants {
 
 	String MEMBER_GRAPH_NAME = "Cascade Graph";
 
+	/* Family graph. */
+
+	String FAMILY_GRAPH_URL = "cascade-graph";
+
+	/* Family trends. */
+
+	String TREND_ACTION_NAME = "Cascade Trends";
+	String TREND_ACTION_ICON = "game-diamond.png";
+	String TREND_ACTION_URL = "cascade-trends";
+
+	/* Build events. */
+
+	String BUILD_EVENT_URL = "cascade-events";
+
 	/* Cascade Logger. */
 
 	String LOGGER_PREFIX = "[CASCADE]";
@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Plugin runtime metrics: counters, gauges and histograms.
+ * <p>
+ * Published over JMX as one dynamic bean, see {@link #OBJECT_NAME}, and
+ * forwarded to every {@link Registry} extension.
+ *
+ * @author Andrei Pozolotin
+ */
+public class PluginMetrics {
+
+	/**
+	 * JMX view of all metrics, attribute per value.
+	 */
+	public static class Bean implements DynamicMBean {
+
+		public Object getAttribute(final String name)
+				throws AttributeNotFoundException {
+			final Long value = snapshot().get(name);
+			if (value == null) {
+				throw new AttributeNotFoundException(name);
+			}
+			return value;
+		}
+
+		public AttributeList getAttributes(final String[] nameList) {
+			final SortedMap<String, Long> snapshot = snapshot();
+			final AttributeList list = new AttributeList();
+			for (final String name : nameList) {
+				final Long value = snapshot.get(name);
+				if (value != null) {
+					list.add(new Attribute(name, value));
+				}
+			}
+			return list;
+		}
+
+		public MBeanInfo getMBeanInfo() {
+			final SortedMap<String, Long> snapshot = snapshot();
+			final MBeanAttributeInfo[] infoArray = new MBeanAttributeInfo[snapshot
+					.size()];
+			int index = 0;
+			for (final String name : snapshot.keySet()) {
+				infoArray[index++] = new MBeanAttributeInfo(name,
+						Long.class.getName(), name, true, false, false);
+			}
+			return new MBeanInfo(getClass().getName(),
+					PluginConstants.PLUGIN_NAME + " metrics", infoArray, null,
+					null, null);
+		}
+
+		public Object invoke(final String action, final Object[] params,
+				final String[] signature) throws ReflectionException {
+			throw new ReflectionException(new NoSuchMethodException(action),
+					"No operations: " + action);
+		}
+
+		public void setAttribute(final Attribute attribute)
+				throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Read only: "
+					+ attribute.getName());
+		}
+
+		public AttributeList setAttributes(final AttributeList list) {
+			return new AttributeList();
+		}
+
+	}
+
+	/**
+	 * Value sampled on read.
+	 */
+	public interface Gauge {
+
+		long value();
+
+	}
+
+	/**
+	 * Distribution of recent values.
+	 * <p>
+	 * Keeps totals of all values and a window of last values for
+	 * percentiles.
+	 */
+	public static class Histogram {
+
+		private long count;
+
+		private long max = Long.MIN_VALUE;
+
+		private long min = Long.MAX_VALUE;
+
+		private final long[] recent = new long[HISTOGRAM_WINDOW];
+
+		private long sum;
+
+		public synchronized long count() {
+			return count;
+		}
+
+		public synchronized long max() {
+			return count == 0 ? 0 : max;
+		}
+
+		public synchronized long mean() {
+			return count == 0 ? 0 : sum / count;
+		}
+
+		public synchronized long min() {
+			return count == 0 ? 0 : min;
+		}
+
+		/**
+		 * Percentile of recent values, 0.0 ... 1.0
+		 */
+		public long percentile(final double quantile) {
+			final long[] array;
+			synchronized (this) {
+				final int size = (int) Math.min(count, recent.length);
+				if (size == 0) {
+					return 0;
+				}
+				array = Arrays.copyOf(recent, size);
+			}
+			Arrays.sort(array);
+			final int index = (int) Math.ceil(quantile * array.length) - 1;
+			return array[Math.max(0, Math.min(index, array.length - 1))];
+		}
+
+		public synchronized void update(final long value) {
+			recent[(int) (count % recent.length)] = value;
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+	}
+
+	/**
+	 * Pluggable metrics registry; receives every counter and histogram
+	 * update, gauges are available from {@link PluginMetrics#snapshot()}.
+	 */
+	public static abstract class Registry implements ExtensionPoint {
+
+		public static ExtensionList<Registry> all() {
+			return Jenkins.getInstance().getExtensionList(Registry.class);
+		}
+
+		/**
+		 * Counter changed by delta.
+		 */
+		public abstract void count(String name, long delta);
+
+		/**
+		 * Histogram received a value.
+		 */
+		public abstract void update(String name, long value);
+
+	}
+
+	private static final ConcurrentMap<String, AtomicLong> counterMap = new ConcurrentHashMap<String, AtomicLong>();
+
+	private static final ConcurrentMap<String, Gauge> gaugeMap = new ConcurrentHashMap<String, Gauge>();
+
+	/**
+	 * Number of recent values kept by histogram for percentiles.
+	 */
+	public static final int HISTOGRAM_WINDOW = Integer.getInteger(
+			PluginMetrics.class.getName() + ".histogramWindow", 1024);
+
+	private static final ConcurrentMap<String, Histogram> histogramMap = new ConcurrentHashMap<String, Histogram>();
+
+	private final static Logger log = Logger.getLogger(PluginMetrics.class
+			.getName());
+
+	/**
+	 * JMX object name of the metrics bean.
+	 */
+	public static final String OBJECT_NAME = PluginMetrics.class.getPackage()
+			.getName() + ":type=PluginMetrics";
+
+	/**
+	 * Increment a counter.
+	 */
+	public static void count(final String name) {
+		count(name, 1);
+	}
+
+	/**
+	 * Change a counter.
+	 */
+	public static void count(final String name, final long delta) {
+		AtomicLong counter = counterMap.get(name);
+		if (counter == null) {
+			counterMap.putIfAbsent(name, new AtomicLong());
+			counter = counterMap.get(name);
+		}
+		counter.addAndGet(delta);
+		for (final Registry registry : registryList()) {
+			try {
+				registry.count(name, delta);
+			} catch (final Throwable e) {
+				log.log(Level.WARNING, "Registry failure: " + registry, e);
+			}
+		}
+	}
+
+	/**
+	 * Current counter value.
+	 */
+	public static long counter(final String name) {
+		final AtomicLong counter = counterMap.get(name);
+		return counter == null ? 0 : counter.get();
+	}
+
+	/**
+	 * Register a gauge, replaces previous one with the same name.
+	 */
+	public static void gauge(final String name, final Gauge gauge) {
+		gaugeMap.put(name, gauge);
+	}
+
+	/**
+	 * Gauge of hit percentage from hit and miss counters.
+	 */
+	public static void gaugeHitRate(final String name, final String hitName,
+			final String missName) {
+		gauge(name, new Gauge() {
+			public long value() {
+				final long hit = counter(hitName);
+				final long total = hit + counter(missName);
+				return total == 0 ? 0 : hit * 100 / total;
+			}
+		});
+	}
+
+	/**
+	 * Histogram by name, created when missing.
+	 */
+	public static Histogram histogram(final String name) {
+		Histogram histogram = histogramMap.get(name);
+		if (histogram == null) {
+			histogramMap.putIfAbsent(name, new Histogram());
+			histogram = histogramMap.get(name);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Publish metrics bean and built-in gauges.
+	 */
+	public static void register() {
+
+		gaugeHitRate("cache.family.hitRate", "cache.family.hit",
+				"cache.family.miss");
+		gaugeHitRate("cache.image.hitRate", "cache.image.hit",
+				"cache.image.miss");
+
+		gauge("run.active.cascade", new Gauge() {
+			public long value() {
+				return RunLock.activeTotal(ProjectRole.CASCADE);
+			}
+		});
+		gauge("run.active.layout", new Gauge() {
+			public long value() {
+				return RunLock.activeTotal(ProjectRole.LAYOUT);
+			}
+		});
+		gauge("run.active.member", new Gauge() {
+			public long value() {
+				return RunLock.activeTotal(ProjectRole.MEMBER);
+			}
+		});
+
+		try {
+			final MBeanServer server = ManagementFactory
+					.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(new Bean(), name);
+		} catch (final Exception e) {
+			log.log(Level.WARNING, "JMX register failure", e);
+		}
+
+	}
+
+	static Iterable<Registry> registryList() {
+		if (Jenkins.getInstance() == null) {
+			return Arrays.<Registry> asList();
+		}
+		return Registry.all();
+	}
+
+	/**
+	 * Record elapsed time since start, millis.
+	 */
+	public static void since(final String name, final long timeStart) {
+		update(name, System.currentTimeMillis() - timeStart);
+	}
+
+	/**
+	 * Flat view of all metric values; histograms are expanded into count,
+	 * mean, min, max and percentiles.
+	 */
+	public static SortedMap<String, Long> snapshot() {
+		final SortedMap<String, Long> snapshot = new TreeMap<String, Long>();
+		for (final Map.Entry<String, AtomicLong> entry : counterMap.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().get());
+		}
+		for (final Map.Entry<String, Gauge> entry : gaugeMap.entrySet()) {
+			try {
+				snapshot.put(entry.getKey(), entry.getValue().value());
+			} catch (final Throwable e) {
+				log.log(Level.FINE, "Gauge failure: " + entry.getKey(), e);
+			}
+		}
+		for (final Map.Entry<String, Histogram> entry : histogramMap
+				.entrySet()) {
+			final String name = entry.getKey();
+			final Histogram histogram = entry.getValue();
+			snapshot.put(name + ".count", histogram.count());
+			snapshot.put(name + ".mean", histogram.mean());
+			snapshot.put(name + ".min", histogram.min());
+			snapshot.put(name + ".max", histogram.max());
+			snapshot.put(name + ".p50", histogram.percentile(0.50));
+			snapshot.put(name + ".p95", histogram.percentile(0.95));
+			snapshot.put(name + ".p99", histogram.percentile(0.99));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Remove metrics bean.
+	 */
+	public static void unregister() {
+		try {
+			final MBeanServer server = ManagementFactory
+					.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (final Exception e) {
+			log.log(Level.WARNING, "JMX unregister failure", e);
+		}
+	}
+
+	/**
+	 * Add a value to a histogram.
+	 */
+	public static void update(final String name, final long value) {
+		histogram(name).update(value);
+		for (final Registry registry : registryList()) {
+			try {
+				registry.update(name, value);
+			} catch (final Throwable e) {
+				log.log(Level.WARNING, "Registry failure: " + registry, e);
+			}
+		}
+	}
+
+	private PluginMetrics() {
+	}
+
+}
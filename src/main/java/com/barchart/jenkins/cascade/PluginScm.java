@@ -10,33 +10,36 @@ package com.barchart.jenkins.cascade;
 import hudson.FilePath;
 import hudson.FilePath.FileCallable;
 import hudson.maven.MavenModuleSet;
+import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.plugins.git.Branch;
 import hudson.plugins.git.BranchSpec;
 import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.Revision;
+import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
 import hudson.remoting.VirtualChannel;
 import hudson.scm.SCM;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
-import org.eclipse.jgit.api.CheckoutResult;
-import org.eclipse.jgit.api.MergeResult;
-import org.eclipse.jgit.api.MergeResult.MergeStatus;
-import org.eclipse.jgit.api.Status;
-import org.eclipse.jgit.dircache.DirCache;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
-import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.lib.RefUpdate;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.transport.FetchResult;
-import org.eclipse.jgit.transport.PushResult;
-import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteConfig;
-import org.eclipse.jgit.transport.RemoteRefUpdate;
-import org.eclipse.jgit.transport.TrackingRefUpdate;
+import org.eclipse.jgit.util.FileUtils;
 
 /**
  * Plugin SCM utilities.
@@ -45,6 +48,29 @@ import org.eclipse.jgit.transport.TrackingRefUpdate;
  */
 public class PluginScm {
 
+	/**
+	 * Folder of member worktrees, next to the layout workspace.
+	 */
+	public static final String WORKTREE_SUFFIX = "@cascade";
+
+	/**
+	 * SCM backend selected by layout options.
+	 */
+	public static PluginScmBackend backend(final BuildContext<?> context) {
+		return backend(context.layoutOptions());
+	}
+
+	/**
+	 * SCM backend selected by layout options; member worktrees and sparse
+	 * workspaces need native git.
+	 */
+	public static PluginScmBackend backend(final LayoutOptions options) {
+		if (isWorktree(options) || isSparse(options)) {
+			return PluginScmType.NATIVE.backend();
+		}
+		return PluginScmType.from(options.getScmBackend()).backend();
+	}
+
 	/**
 	 * Verify jenkins scm assumptions for cascade to work.
 	 */
@@ -100,10 +126,51 @@ public class PluginScm {
 
 	}
 
+	/**
+	 * Members share layout repository via git worktree.
+	 */
+	public static boolean isWorktree(final LayoutOptions options) {
+		return options.getUseSharedWorkspace()
+				&& options.getUseMemberWorktree();
+	}
+
+	/**
+	 * Members use sparse checkout in individual workspaces.
+	 */
+	public static boolean isSparse(final LayoutOptions options) {
+		return options.getUseSparseCheckout()
+				&& !options.getUseSharedWorkspace();
+	}
+
+	/**
+	 * Project is a member with its own worktree.
+	 */
+	public static boolean isWorktree(final BuildContext<?> context,
+			final MavenModuleSet project) {
+		final ProjectIdentity identity = ProjectIdentity.identity(project);
+		if (identity == null || identity.role() != ProjectRole.MEMBER) {
+			return false;
+		}
+		return isWorktree(context.layoutOptions());
+	}
+
 	public static String localBranchName(final GitSCM gitScm) {
 		return gitScm.getLocalBranch();
 	}
 
+	/**
+	 * Local branch of project workspace; git does not allow the same branch
+	 * in two worktrees.
+	 */
+	public static String localBranchName(final BuildContext<?> context,
+			final MavenModuleSet project) {
+		final String localBranch = localBranchName((GitSCM) project.getScm());
+		if (isWorktree(context, project)) {
+			return worktreeBranch(localBranch, project.getName());
+		}
+		return localBranch;
+	}
+
 	/**
 	 * Convert identity from jenkins to jgit.
 	 */
@@ -141,56 +208,17 @@ public class PluginScm {
 			final MavenModuleSet project) throws IOException,
 			InterruptedException {
 
-		final String message = checkScm(project);
+		final List<PluginScmSession.Step> report = new PluginScmSession()
+				.push().verify().run(context, project);
 
-		if (message != null) {
-			throw new IllegalStateException(message);
-		}
+		final PluginScmSession.Step step = report.get(0);
 
-		final GitSCM gitScm = (GitSCM) project.getScm();
-		final FilePath workspace = workspace(context, project);
-
-		/** Remote objects. */
-		final BuildLogger logger = context.logger();
-		final String localBranch = localBranchName(gitScm);
-		final String remoteName = remoteName(gitScm);
-		final String remoteBranch = remoteBranchName(gitScm);
-
-		/** Remote operation. */
-		final FileCallable<Void> callable = new FileCallable<Void>() {
-
-			private static final long serialVersionUID = 1L;
-
-			public Void invoke(final File basedir, final VirtualChannel channel)
-					throws IOException, InterruptedException {
-
-				final RefSpec pushSpec = PluginScmGit.refPush(localBranch,
-						remoteBranch);
-
-				final Iterable<PushResult> pushResultList = PluginScmGit
-						.doPush(basedir, remoteName, pushSpec);
-
-				final PushResult pushResult = pushResultList.iterator().next();
+		context.logTab("push retries: " + step.retries() + " time: "
+				+ step.millis() + " ms");
 
-				final String refHeads = PluginScmGit.refHeads(remoteBranch);
-
-				final RemoteRefUpdate remoteUpdate = pushResult
-						.getRemoteUpdate(refHeads);
-
-				final RemoteRefUpdate.Status pushStatus = remoteUpdate
-						.getStatus();
-
-				logger.logTab("push status: " + pushStatus);
-
-				if (!PluginScmGit.isSuccess(pushStatus)) {
-					throw new IllegalStateException("Unexpected");
-				}
-
-				return null;
-			}
-		};
-
-		workspace.act(callable);
+		context.identity().log(
+				"Check-in: " + step.status() + " retries=" + step.retries()
+						+ " millis=" + step.millis());
 
 	}
 
@@ -212,7 +240,8 @@ public class PluginScm {
 
 		/** Remote objects. */
 		final BuildLogger logger = context.logger();
-		final String localBranch = localBranchName(gitScm);
+		final PluginScmBackend backend = backend(context);
+		final String localBranch = localBranchName(context, project);
 		final String remoteURI = remoteURI(gitScm);
 		final String remoteName = remoteName(gitScm);
 		final String remoteBranch = remoteBranchName(gitScm);
@@ -226,89 +255,78 @@ public class PluginScm {
 					final VirtualChannel channel) throws IOException,
 					InterruptedException {
 
-				final boolean hasRepo = PluginScmGit.doRepoTest(basedir);
+				final boolean hasRepo = backend.isRepository(basedir);
 
 				if (hasRepo) {
 
 					logger.logTab("repository present");
 
-					final Status status = PluginScmGit.doStatus(basedir);
-
-					if (!status.isClean()) {
+					if (!backend.isClean(basedir)) {
 						logger.logTab("repository needs cleanup");
-						PluginScmGit.doReset(basedir);
+						backend.reset(basedir);
 					}
 
-					/** Spec for the fetch mapping. */
-					final RefSpec fetchSpec = PluginScmGit.refFetch(
-							remoteBranch, remoteName, remoteBranch);
-
-					final FetchResult fetchResult = PluginScmGit.doFetch(
-							basedir, remoteName, fetchSpec);
+					/** Head of the remote branch. */
+					final String commit = backend.fetch(basedir, remoteName,
+							remoteBranch);
 
-					logger.logTab("fetch result: "
-							+ fetchResult.getTrackingRefUpdates().size());
-
-					/** Spec of the head of the remote branch. */
-					final String refHead = PluginScmGit.refHeads(remoteBranch);
-
-					/** Reference to head of the remote branch. */
-					final Ref remoteHead = fetchResult
-							.getAdvertisedRef(refHead);
-					if (remoteHead == null) {
-						logger.logErr("remote branch not found: " + refHead);
+					if (commit == null) {
+						logger.logErr("remote branch not found: "
+								+ PluginScmGit.refHeads(remoteBranch));
 						throw new IllegalStateException("Unexpected");
 					}
 
-					final ObjectId commit = remoteHead.getObjectId();
+					logger.logTab("fetch result: " + commit);
 
-					final MergeResult mergeResult = PluginScmGit.doMerge(
-							basedir, commit);
-
-					final MergeStatus mergeStatus = mergeResult
-							.getMergeStatus();
+					final String mergeStatus = backend.merge(basedir, commit);
 
 					logger.logTab("merge result: " + mergeStatus);
 
-					if (!mergeStatus.isSuccessful()) {
+					if (!PluginScmGit.isMergeSuccess(mergeStatus)) {
 						logger.logTab("repository needs clone");
-						PluginScmGit.doClone(basedir, remoteURI, remoteName);
+						backend.clone(basedir, remoteURI, remoteName);
 					}
 
 				} else {
 
 					logger.logTab("repository needs clone");
-					PluginScmGit.doClone(basedir, remoteURI, remoteName);
+					backend.clone(basedir, remoteURI, remoteName);
 
 				}
 
-				final CheckoutResult checkoutResult = PluginScmGit.doCheckout(
-						basedir, localBranch, remoteName, remoteBranch);
-
-				final CheckoutResult.Status checkoutStatus = checkoutResult
-						.getStatus();
+				final String checkoutStatus = backend.checkout(basedir,
+						localBranch, remoteName, remoteBranch);
 
 				logger.logTab("checkout status: " + checkoutStatus);
 
-				if (!PluginScmGit.isSuccess(checkoutStatus)) {
+				if (!PluginScmGit.isCheckoutSuccess(checkoutStatus)) {
 					throw new IllegalStateException("Unexpected");
 				}
 
 				/** FIXME checkout does not work */
-				PluginScmGit.doReset(basedir);
+				backend.reset(basedir);
 
-				final Ref ref = PluginScmGit.findRef(basedir, localBranch);
+				final String commit = backend.resolve(basedir,
+						PluginScmGit.refHeads(localBranch));
 
-				logger.logTab(localBranch + ": " + ref.getObjectId().name());
+				logger.logTab(localBranch + ": " + commit);
 
-				/** TODO delete local tags */
+				/** Stale local tags are removed by LayoutMaintenance. */
 
 				return null;
 			}
 		};
 
+		final long timeStart = System.currentTimeMillis();
+
 		workspace.act(callable);
 
+		PluginMetrics.since("scm.checkout", timeStart);
+
+		BuildEventLog.emit(context, "scm.op", "project", project.getName(),
+				"op", "CHECKOUT", "millis", System.currentTimeMillis()
+						- timeStart);
+
 	}
 
 	/**
@@ -317,6 +335,16 @@ public class PluginScm {
 	public static void scmCommit(final BuildContext<?> context,
 			final MavenModuleSet project, final String pattern)
 			throws IOException, InterruptedException {
+		new PluginScmSession().commit(pattern).run(context, project);
+	}
+
+	/**
+	 * Limit member workspace to module folder, parent pom.xml chain and extra
+	 * paths; updates working tree when patterns changed after checkout.
+	 */
+	public static void scmSparseCheckout(final BuildContext<?> context,
+			final MavenModuleSet project, final String extraPaths)
+			throws IOException, InterruptedException {
 
 		final String message = checkScm(project);
 
@@ -324,12 +352,11 @@ public class PluginScm {
 			throw new IllegalStateException(message);
 		}
 
-		final GitSCM gitScm = (GitSCM) project.getScm();
 		final FilePath workspace = workspace(context, project);
 
 		/** Remote objects. */
 		final BuildLogger logger = context.logger();
-		final PersonIdent person = person(gitScm);
+		final String modulePath = sparseModulePath(project.getRootPOM(null));
 
 		/** Remote operation. */
 		final FileCallable<Void> callable = new FileCallable<Void>() {
@@ -339,23 +366,76 @@ public class PluginScm {
 			public Void invoke(final File basedir, final VirtualChannel channel)
 					throws IOException, InterruptedException {
 
-				final Status status = PluginScmGit.doStatus(basedir);
-				final Set<String> modifiedSet = status.getModified();
-				// logger.logTab("modifiedSet: " + modifiedSet);
+				final Set<String> patternSet = sparsePatternSet(basedir,
+						modulePath, extraPaths);
 
-				if (!modifiedSet.contains(pattern)) {
-					logger.logTab("no change: " + pattern);
-					return null;
+				final boolean isChanged = PluginScmGit.doSparseCheckout(
+						basedir, patternSet);
+
+				logger.logTab("sparse checkout: " + patternSet);
+				logger.logTab("sparse status: "
+						+ (isChanged ? "updated" : "no change"));
+
+				return null;
+			}
+		};
+
+		workspace.act(callable);
+
+	}
+
+	/**
+	 * Configure sparse checkout before the first SCM checkout, so the full
+	 * repository tree is never materialized; creates empty repository with
+	 * project remote when missing.
+	 */
+	public static void scmSparsePrepare(final BuildContext<?> context,
+			final MavenModuleSet project, final String extraPaths)
+			throws IOException, InterruptedException {
+
+		final String message = checkScm(project);
+
+		if (message != null) {
+			throw new IllegalStateException(message);
+		}
+
+		final GitSCM gitScm = (GitSCM) project.getScm();
+		final FilePath workspace = workspace(context, project);
+
+		/** Remote objects. */
+		final BuildLogger logger = context.logger();
+		final PluginScmBackend backend = PluginScmType.NATIVE.backend();
+		final String modulePath = sparseModulePath(project.getRootPOM(null));
+		final String remoteURI = remoteURI(gitScm);
+		final String remoteName = remoteName(gitScm);
+
+		/** Remote operation. */
+		final FileCallable<Void> callable = new FileCallable<Void>() {
+
+			private static final long serialVersionUID = 1L;
+
+			public Void invoke(final File basedir, final VirtualChannel channel)
+					throws IOException, InterruptedException {
+
+				if (!backend.isRepository(basedir)) {
+					logger.logTab("sparse repository needs init");
+					FileUtils.delete(basedir, FileUtils.RECURSIVE
+							| FileUtils.IGNORE_ERRORS);
+					FileUtils.mkdirs(basedir, true);
+					PluginScmGit.doCommand(basedir, "init", "--quiet");
+					PluginScmGit.doCommand(basedir, "remote", "add",
+							remoteName, remoteURI);
 				}
 
-				final DirCache addResult = PluginScmGit.doAdd(basedir, pattern);
-				logger.logTab("added: " + pattern);
+				final Set<String> patternSet = sparsePatternSet(basedir,
+						modulePath, extraPaths);
 
-				final String commitMessage = "[cascade]" + " " + pattern;
+				final boolean isChanged = PluginScmGit.doSparseConfig(basedir,
+						patternSet);
 
-				final RevCommit commitResult = PluginScmGit.doCommit(basedir,
-						person, commitMessage);
-				logger.logTab("commit: " + commitResult.name());
+				logger.logTab("sparse prepare: " + patternSet);
+				logger.logTab("sparse status: "
+						+ (isChanged ? "updated" : "no change"));
 
 				return null;
 			}
@@ -366,9 +446,162 @@ public class PluginScm {
 	}
 
 	/**
-	 * Update from remote.
+	 * Module folder from module pom.xml relative path.
 	 */
-	public static void scmUpdate(final BuildContext<CascadeBuild> context,
+	public static String sparseModulePath(final String rootPOM) {
+		final int index = rootPOM.lastIndexOf('/');
+		if (index < 0) {
+			return "";
+		}
+		return rootPOM.substring(0, index);
+	}
+
+	/**
+	 * Relative paths of parent pom.xml files present in the repository HEAD
+	 * commit, following maven parent relative path convention.
+	 */
+	public static List<String> sparseParentChain(final File basedir,
+			final String modulePath) throws IOException {
+
+		final List<String> pomList = new ArrayList<String>();
+
+		String pomPath = sparseResolve(modulePath, "pom.xml");
+
+		/** Protect against parent loops. */
+		for (int level = 0; level < 32; level++) {
+
+			final byte[] content = PluginScmGit.doReadHead(basedir, pomPath);
+
+			if (content == null) {
+				break;
+			}
+
+			final Model model = PluginUtilities
+					.mavenModel(new ByteArrayInputStream(content));
+
+			final Parent parent = model.getParent();
+
+			if (parent == null) {
+				break;
+			}
+
+			String parentPath = sparseResolve(sparseModulePath(pomPath),
+					parent.getRelativePath());
+
+			/** Parent is outside of repository. */
+			if (parentPath == null) {
+				break;
+			}
+
+			if (!parentPath.endsWith(".xml")) {
+				parentPath = sparseResolve(parentPath, "pom.xml");
+			}
+
+			/** Parent is not present in repository. */
+			if (PluginScmGit.doReadHead(basedir, parentPath) == null) {
+				break;
+			}
+
+			if (pomList.contains(parentPath)) {
+				break;
+			}
+
+			pomList.add(parentPath);
+
+			pomPath = parentPath;
+
+		}
+
+		return pomList;
+
+	}
+
+	/**
+	 * Sparse checkout patterns: module folder, pom.xml files of module
+	 * ancestor folders, parent pom.xml chain and extra paths.
+	 */
+	public static Set<String> sparsePatternSet(final File basedir,
+			final String modulePath, final String extraPaths)
+			throws IOException {
+
+		final Set<String> patternSet = new LinkedHashSet<String>();
+
+		if (modulePath.length() == 0) {
+			patternSet.add("/*");
+			return patternSet;
+		}
+
+		patternSet.add("/" + modulePath + "/");
+
+		/** Conventional parents, known before the first checkout. */
+		String folder = sparseModulePath(modulePath);
+		while (true) {
+			patternSet.add("/" + sparseResolve(folder, "pom.xml"));
+			if (folder.length() == 0) {
+				break;
+			}
+			folder = sparseModulePath(folder);
+		}
+
+		for (final String pomPath : sparseParentChain(basedir, modulePath)) {
+			patternSet.add("/" + pomPath);
+		}
+
+		if (extraPaths != null) {
+			for (final String line : extraPaths.split("[\\r\\n,]+")) {
+				final String path = line.trim().replaceAll("^/+", "");
+				if (path.length() > 0) {
+					patternSet.add("/" + path);
+				}
+			}
+		}
+
+		return patternSet;
+
+	}
+
+	/**
+	 * Resolve relative path against repository folder.
+	 * 
+	 * @return normalized repository path, or null when path leaves
+	 *         repository
+	 */
+	public static String sparseResolve(final String folder,
+			final String relativePath) {
+		final LinkedList<String> nameList = new LinkedList<String>();
+		final String path = folder.length() == 0 ? relativePath : folder + "/"
+				+ relativePath;
+		for (final String name : path.replace('\\', '/').split("/")) {
+			if (name.length() == 0 || name.equals(".")) {
+				continue;
+			}
+			if (name.equals("..")) {
+				if (nameList.isEmpty()) {
+					return null;
+				}
+				nameList.removeLast();
+				continue;
+			}
+			nameList.add(name);
+		}
+		final StringBuilder text = new StringBuilder();
+		for (final String name : nameList) {
+			if (text.length() > 0) {
+				text.append('/');
+			}
+			text.append(name);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Create member worktree linked to the layout repository when missing,
+	 * and fetch remote branch; changes shared repository, needs
+	 * {@link WorkspaceLock#write()}.
+	 * 
+	 * @return remote branch head commit
+	 */
+	public static String scmWorktreeFetch(final BuildContext<?> context,
 			final MavenModuleSet project) throws IOException,
 			InterruptedException {
 
@@ -383,77 +616,258 @@ public class PluginScm {
 
 		/** Remote objects. */
 		final BuildLogger logger = context.logger();
-		final String localBranch = localBranchName(gitScm);
+		final PluginScmBackend backend = backend(context);
 		final String remoteName = remoteName(gitScm);
 		final String remoteBranch = remoteBranchName(gitScm);
 
 		/** Remote operation. */
-		final FileCallable<Void> callable = new FileCallable<Void>() {
+		final FileCallable<String> callable = new FileCallable<String>() {
 
 			private static final long serialVersionUID = 1L;
 
-			public Void invoke(final File basedir, final VirtualChannel channel)
-					throws IOException, InterruptedException {
+			public String invoke(final File basedir,
+					final VirtualChannel channel) throws IOException,
+					InterruptedException {
 
-				final String localBranchCurrent = PluginScmGit.branch(basedir);
+				final File origin = worktreeOrigin(basedir);
 
-				if (!localBranchCurrent.equals(localBranch)) {
-					logger.logErr("branch mismatch: " + localBranchCurrent
-							+ "/" + localBranch);
+				if (!backend.isRepository(origin)) {
+					logger.logErr("layout repository missing: " + origin);
 					throw new IllegalStateException("Unexpected");
 				}
 
-				/** Spec for the fetch mapping. */
-				final RefSpec fetchSpec = PluginScmGit.refFetch(remoteBranch,
-						remoteName, remoteBranch);
+				if (!backend.isRepository(basedir)) {
+					logger.logTab("worktree needs create: " + basedir);
+					/** Forget worktrees removed from disk. */
+					PluginScmGit.doCommand(origin, "worktree", "prune");
+					FileUtils.delete(basedir, FileUtils.RECURSIVE
+							| FileUtils.IGNORE_ERRORS);
+					PluginScmGit.doCommand(origin, "worktree", "add",
+							"--detach", basedir.getAbsolutePath());
+				} else {
+					logger.logTab("worktree present");
+				}
 
-				final FetchResult fetchResult = PluginScmGit.doFetch(basedir,
-						remoteName, fetchSpec);
+				/** Objects and remote refs are shared with layout repository. */
+				final String commit = backend.fetch(basedir, remoteName,
+						remoteBranch);
 
-				/** Spec of the head of the remote branch. */
-				final String refHead = PluginScmGit.refHeads(remoteBranch);
+				if (commit == null) {
+					logger.logErr("remote branch not found: "
+							+ PluginScmGit.refHeads(remoteBranch));
+					throw new IllegalStateException("Unexpected");
+				}
 
-				/** Spec of the head of the local remote tracking branch. */
-				final String refRemote = PluginScmGit.refRemotes(remoteName,
-						remoteBranch);
+				logger.logTab("fetch result: " + commit);
 
-				final TrackingRefUpdate trackingUpdate = fetchResult
-						.getTrackingRefUpdate(refRemote);
+				return commit;
+			}
+		};
 
-				if (trackingUpdate == null) {
-					logger.logTab("fetch status: " + "no update");
-					return null;
-				} else {
-					final RefUpdate.Result fetchStatus = trackingUpdate
-							.getResult();
-					logger.logTab("fetch status: " + fetchStatus);
-					if (fetchStatus == RefUpdate.Result.NO_CHANGE) {
-						return null;
-					}
+		final long timeStart = System.currentTimeMillis();
+
+		final String commit = workspace.act(callable);
+
+		PluginMetrics.since("scm.worktree.fetch", timeStart);
+
+		return commit;
+
+	}
+
+	/**
+	 * Reset member worktree branch to the fetched commit; changes only the
+	 * member worktree, needs {@link WorkspaceLock#read()}.
+	 * 
+	 * @param previous
+	 *            commit of previous build, or null
+	 * @return change log since previous commit in raw git log format
+	 */
+	public static String scmWorktreeCheckout(final BuildContext<?> context,
+			final MavenModuleSet project, final String commit,
+			final String previous) throws IOException, InterruptedException {
+
+		final FilePath workspace = workspace(context, project);
+
+		/** Remote objects. */
+		final BuildLogger logger = context.logger();
+		final PluginScmBackend backend = backend(context);
+		final String localBranch = localBranchName(context, project);
+
+		/** Remote operation. */
+		final FileCallable<String> callable = new FileCallable<String>() {
+
+			private static final long serialVersionUID = 1L;
+
+			public String invoke(final File basedir,
+					final VirtualChannel channel) throws IOException,
+					InterruptedException {
+
+				PluginScmGit.doCommand(basedir, "checkout", "--force", "-B",
+						localBranch, commit);
+
+				logger.logTab(localBranch + ": "
+						+ backend.resolve(basedir, "HEAD"));
+
+				if (previous == null || previous.equals(commit)) {
+					return "";
+				}
+
+				/** Previous commit can be gone after history rewrite. */
+				if (PluginScmGit.doCommand(basedir, new StringBuilder(),
+						"cat-file", "-e", previous + "^{commit}") != 0) {
+					return "";
 				}
 
-				/** Reference to head of the remote branch. */
-				final Ref remoteHead = fetchResult.getAdvertisedRef(refHead);
+				/** Format expected by git plugin change log parser. */
+				return PluginScmGit.doCommand(basedir, "log", "--raw",
+						"--no-merges", "--no-abbrev", "-M", "--pretty=raw",
+						previous + ".." + commit);
+			}
+		};
 
-				final ObjectId commit = remoteHead.getObjectId();
-				// logger.logTab("commit: " + commit);
+		final long timeStart = System.currentTimeMillis();
 
-				final MergeResult mergeResult = PluginScmGit.doMerge(basedir,
-						commit);
+		final String changeLog = workspace.act(callable);
 
-				final MergeStatus mergeStatus = mergeResult.getMergeStatus();
-				logger.logTab("merge status: " + mergeStatus);
+		PluginMetrics.since("scm.worktree", timeStart);
 
-				if (!mergeStatus.isSuccessful()) {
-					throw new IllegalStateException("Unexpected");
+		BuildEventLog.emit(context, "scm.op", "project", project.getName(),
+				"op", "WORKTREE", "millis", System.currentTimeMillis()
+						- timeStart);
+
+		return changeLog;
+
+	}
+
+	/**
+	 * Record worktree checkout the way git plugin does: build data action for
+	 * polling and change log for change tracking.
+	 */
+	public static void scmWorktreeRecord(final BuildContext<?> context,
+			final MavenModuleSet project, final String commit,
+			final String changeLog) throws IOException {
+
+		final AbstractBuild<?, ?> build = context.build();
+		final GitSCM gitScm = (GitSCM) project.getScm();
+
+		final String branchName = PluginScmGit.remote(remoteName(gitScm),
+				remoteBranchName(gitScm));
+
+		final ObjectId commitId = ObjectId.fromString(commit);
+
+		final Revision revision = new Revision(commitId,
+				Collections.singletonList(new Branch(branchName, commitId)));
+
+		BuildData buildData = gitScm.getBuildData(build.getPreviousBuild(),
+				true);
+		if (buildData == null) {
+			buildData = new BuildData();
+		}
+		buildData.saveBuild(new Build(revision, build.getNumber(), null));
+		build.addAction(buildData);
+
+		final File changeLogFile = new File(build.getRootDir(),
+				"changelog.xml");
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(
+				changeLogFile), "UTF-8");
+		try {
+			writer.write(changeLog);
+		} finally {
+			writer.close();
+		}
+
+		/** Build change log parser is set only by default checkout. */
+		PluginUtilities.changeField(build, AbstractBuild.class, "scm",
+				gitScm.createChangeLogParser());
+
+	}
+
+	/**
+	 * Commit of the previous member build from git plugin build data, or
+	 * null.
+	 */
+	public static String scmWorktreePrevious(final BuildContext<?> context,
+			final MavenModuleSet project) {
+		final GitSCM gitScm = (GitSCM) project.getScm();
+		final BuildData buildData = gitScm.getBuildData(context.build()
+				.getPreviousBuild(), false);
+		if (buildData == null) {
+			return null;
+		}
+		final Revision revision = buildData.getLastBuiltRevision();
+		if (revision == null) {
+			return null;
+		}
+		return revision.getSha1String();
+	}
+
+	/**
+	 * Remove member worktree and its branch from the layout repository.
+	 */
+	public static void scmWorktreeRemove(final BuildContext<?> context,
+			final FilePath layoutWorkspace, final String worktreePath,
+			final String worktreeBranch) throws IOException,
+			InterruptedException {
+
+		/** Remote objects. */
+		final BuildLogger logger = context.logger();
+
+		/** Remote operation. */
+		final FileCallable<Void> callable = new FileCallable<Void>() {
+
+			private static final long serialVersionUID = 1L;
+
+			public Void invoke(final File basedir, final VirtualChannel channel)
+					throws IOException, InterruptedException {
+
+				final File worktree = new File(worktreePath);
+
+				FileUtils.delete(worktree, FileUtils.RECURSIVE
+						| FileUtils.IGNORE_ERRORS);
+
+				PluginScmGit.doCommand(basedir, "worktree", "prune");
+
+				final StringBuilder output = new StringBuilder();
+				if (PluginScmGit.doCommand(basedir, output, "branch", "-D",
+						worktreeBranch) == 0) {
+					logger.logTab("worktree branch removed: " + worktreeBranch);
 				}
 
+				logger.logTab("worktree removed: " + worktree);
+
 				return null;
 			}
 		};
 
-		workspace.act(callable);
+		layoutWorkspace.act(callable);
+
+	}
+
+	/**
+	 * Worktree branch name of a member project.
+	 */
+	public static String worktreeBranch(final String localBranch,
+			final String projectName) {
+		return "cascade/" + localBranch + "/"
+				+ projectName.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
 
+	/**
+	 * Layout repository of a member worktree.
+	 */
+	public static File worktreeOrigin(final File worktree) {
+		final File folder = worktree.getParentFile();
+		final String name = folder.getName();
+		return new File(folder.getParentFile(), name.substring(0, name.length()
+				- WORKTREE_SUFFIX.length()));
+	}
+
+	/**
+	 * Member worktree path relative to the layout workspace path.
+	 */
+	public static String worktreePath(final String layoutPath,
+			final String projectName) {
+		return layoutPath + WORKTREE_SUFFIX + "/" + projectName;
 	}
 
 	/**
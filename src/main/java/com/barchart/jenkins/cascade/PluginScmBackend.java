@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.PersonIdent;
+
+/**
+ * Plugin SCM backend used by remote repository operations.
+ * <p>
+ * Status results use JGit enum names, see {@link PluginScmGit}.
+ * 
+ * @author Andrei Pozolotin
+ */
+public interface PluginScmBackend extends Serializable {
+
+	/**
+	 * Add file pattern into the index.
+	 */
+	void add(File workspace, String pattern);
+
+	/**
+	 * Short name of current branch.
+	 */
+	String branch(File workspace);
+
+	/**
+	 * Switch to local branch, create tracking branch when missing.
+	 * 
+	 * @return checkout status name
+	 */
+	String checkout(File workspace, String localBranch, String remoteName,
+			String remoteBranch);
+
+	/**
+	 * Destroy workspace and clone from scratch w/o checkout.
+	 */
+	void clone(File workspace, String uri, String remoteName);
+
+	/**
+	 * Commit index into current branch.
+	 * 
+	 * @return commit id
+	 */
+	String commit(File workspace, PersonIdent person, String message);
+
+	/**
+	 * Fetch remote branch into remote tracking branch.
+	 * 
+	 * @return remote branch head commit id, or null when branch is missing
+	 */
+	String fetch(File workspace, String remoteName, String remoteBranch);
+
+	/**
+	 * Verify if workspace has a git repository.
+	 */
+	boolean isRepository(File workspace);
+
+	/**
+	 * Verify if working tree has no changes.
+	 */
+	boolean isClean(File workspace);
+
+	/**
+	 * Merge commit into current branch.
+	 * 
+	 * @return merge status name
+	 */
+	String merge(File workspace, String commit);
+
+	/**
+	 * Tracked files with working tree modifications.
+	 */
+	Set<String> modified(File workspace);
+
+	/**
+	 * Pack loose references and/or loose objects in one maintenance pass.
+	 */
+	void pack(File workspace, boolean packRefs, boolean packObjects);
+
+	/**
+	 * Delete local tags and remote tracking branches which are no longer
+	 * present in the remote.
+	 * 
+	 * @return deleted reference names
+	 */
+	Set<String> pruneRefs(File workspace, String remoteName);
+
+	/**
+	 * Push local branch into remote branch w/o fast-forward.
+	 * 
+	 * @return remote reference update status name
+	 */
+	String push(File workspace, String remoteName, String localBranch,
+			String remoteBranch);
+
+	/**
+	 * Rebase current branch onto upstream commit; abort rebase on failure.
+	 * 
+	 * @return rebase status name
+	 */
+	String rebase(File workspace, PersonIdent person, String upstream);
+
+	/**
+	 * Reset index and working tree to current branch head.
+	 */
+	void reset(File workspace);
+
+	/**
+	 * Resolve reference into commit id.
+	 * 
+	 * @return commit id or null, when reference is missing
+	 */
+	String resolve(File workspace, String name);
+
+}
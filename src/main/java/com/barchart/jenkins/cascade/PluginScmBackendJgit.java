@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+
+/**
+ * Plugin SCM backend based on embedded JGit library.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class PluginScmBackendJgit implements PluginScmBackend {
+
+	private static final long serialVersionUID = 1L;
+
+	public void add(final File workspace, final String pattern) {
+		PluginScmGit.doAdd(workspace, pattern);
+	}
+
+	public String branch(final File workspace) {
+		return PluginScmGit.branch(workspace);
+	}
+
+	public String checkout(final File workspace, final String localBranch,
+			final String remoteName, final String remoteBranch) {
+		return PluginScmGit
+				.doCheckout(workspace, localBranch, remoteName, remoteBranch)
+				.getStatus().name();
+	}
+
+	public void clone(final File workspace, final String uri,
+			final String remoteName) {
+		PluginScmGit.doClone(workspace, uri, remoteName);
+	}
+
+	public String commit(final File workspace, final PersonIdent person,
+			final String message) {
+		return PluginScmGit.doCommit(workspace, person, message).name();
+	}
+
+	public String fetch(final File workspace, final String remoteName,
+			final String remoteBranch) {
+
+		final RefSpec fetchSpec = PluginScmGit.refFetch(remoteBranch,
+				remoteName, remoteBranch);
+
+		final FetchResult fetchResult = PluginScmGit.doFetch(workspace,
+				remoteName, fetchSpec);
+
+		final Ref remoteHead = fetchResult.getAdvertisedRef(PluginScmGit
+				.refHeads(remoteBranch));
+
+		if (remoteHead == null) {
+			return null;
+		}
+
+		return remoteHead.getObjectId().name();
+
+	}
+
+	public boolean isClean(final File workspace) {
+		return PluginScmGit.doStatus(workspace).isClean();
+	}
+
+	public boolean isRepository(final File workspace) {
+		return PluginScmGit.doRepoTest(workspace);
+	}
+
+	public String merge(final File workspace, final String commit) {
+		return PluginScmGit
+				.doMerge(workspace, ObjectId.fromString(commit))
+				.getMergeStatus().name();
+	}
+
+	public Set<String> modified(final File workspace) {
+		return PluginScmGit.doStatus(workspace).getModified();
+	}
+
+	/**
+	 * JGit garbage collection packs references together with objects, so
+	 * either request is served by a single collection.
+	 */
+	public void pack(final File workspace, final boolean packRefs,
+			final boolean packObjects) {
+		if (packRefs || packObjects) {
+			PluginScmGit.doGarbageCollect(workspace);
+		}
+	}
+
+	public Set<String> pruneRefs(final File workspace, final String remoteName) {
+
+		final Set<String> remoteRefs = new HashSet<String>();
+		for (final Ref ref : PluginScmGit.doLsRemote(workspace, remoteName)) {
+			remoteRefs.add(ref.getName());
+		}
+
+		final Set<String> localRefs = new HashSet<String>();
+		for (final String prefix : new String[] { Constants.R_TAGS,
+				Constants.R_REMOTES + remoteName + "/" }) {
+			for (final String name : PluginScmGit.refList(workspace, prefix)) {
+				localRefs.add(prefix + name);
+			}
+		}
+
+		final Set<String> staleSet = PluginScmGit.refStale(localRefs,
+				remoteRefs, remoteName);
+
+		for (final String name : staleSet) {
+			PluginScmGit.doRefDelete(workspace, name);
+		}
+
+		return staleSet;
+
+	}
+
+	public String push(final File workspace, final String remoteName,
+			final String localBranch, final String remoteBranch) {
+
+		final RefSpec pushSpec = PluginScmGit.refPush(localBranch,
+				remoteBranch);
+
+		final Iterable<PushResult> pushResultList = PluginScmGit.doPush(
+				workspace, remoteName, pushSpec);
+
+		final PushResult pushResult = pushResultList.iterator().next();
+
+		final RemoteRefUpdate remoteUpdate = pushResult
+				.getRemoteUpdate(PluginScmGit.refHeads(remoteBranch));
+
+		return remoteUpdate.getStatus().name();
+
+	}
+
+	public String rebase(final File workspace, final PersonIdent person,
+			final String upstream) {
+		return PluginScmGit
+				.doRebase(workspace, ObjectId.fromString(upstream))
+				.getStatus().name();
+	}
+
+	public void reset(final File workspace) {
+		PluginScmGit.doReset(workspace);
+	}
+
+	public String resolve(final File workspace, final String name) {
+		final Ref ref = PluginScmGit.findRef(workspace, name);
+		if (ref == null || ref.getObjectId() == null) {
+			return null;
+		}
+		return ref.getObjectId().name();
+	}
+
+}
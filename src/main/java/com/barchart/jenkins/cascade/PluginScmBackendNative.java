@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.api.CheckoutResult;
+import org.eclipse.jgit.api.MergeResult.MergeStatus;
+import org.eclipse.jgit.api.RebaseResult;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.util.FileUtils;
+
+/**
+ * Plugin SCM backend based on native git command line.
+ * <p>
+ * Requires git executable on the node path.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class PluginScmBackendNative implements PluginScmBackend {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Single line command output.
+	 */
+	protected static String line(final String text) {
+		return text.trim();
+	}
+
+	public void add(final File workspace, final String pattern) {
+		PluginScmGit.doCommand(workspace, "add", "--", pattern);
+	}
+
+	public String branch(final File workspace) {
+		return line(PluginScmGit.doCommand(workspace, "rev-parse",
+				"--abbrev-ref", "HEAD"));
+	}
+
+	public String checkout(final File workspace, final String localBranch,
+			final String remoteName, final String remoteBranch) {
+
+		final StringBuilder output = new StringBuilder();
+
+		final int status;
+		if (resolve(workspace, PluginScmGit.refHeads(localBranch)) == null) {
+			status = PluginScmGit.doCommand(workspace, output, "checkout",
+					"--force", "--track", "-b", localBranch,
+					PluginScmGit.remote(remoteName, remoteBranch));
+		} else {
+			status = PluginScmGit.doCommand(workspace, output, "checkout",
+					"--force", localBranch);
+		}
+
+		if (status == 0) {
+			return CheckoutResult.Status.OK.name();
+		} else {
+			return CheckoutResult.Status.ERROR.name();
+		}
+
+	}
+
+	public void clone(final File workspace, final String uri,
+			final String remoteName) {
+		try {
+			FileUtils.delete(workspace, FileUtils.RECURSIVE
+					| FileUtils.IGNORE_ERRORS);
+			FileUtils.mkdirs(workspace, true);
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+		PluginScmGit.doCommand(workspace, "clone", "--no-checkout",
+				"--origin", remoteName, uri, ".");
+	}
+
+	public String commit(final File workspace, final PersonIdent person,
+			final String message) {
+		if (person == null) {
+			PluginScmGit.doCommand(workspace, "commit", "--message", message);
+		} else {
+			final String author = person.getName() + " <"
+					+ person.getEmailAddress() + ">";
+			PluginScmGit.doCommand(workspace, "-c",
+					"user.name=" + person.getName(), "-c",
+					"user.email=" + person.getEmailAddress(), "commit",
+					"--author", author, "--message", message);
+		}
+		return line(PluginScmGit.doCommand(workspace, "rev-parse", "HEAD"));
+	}
+
+	public String fetch(final File workspace, final String remoteName,
+			final String remoteBranch) {
+
+		final String spec = PluginScmGit.ref(true, remoteBranch, remoteName,
+				remoteBranch);
+
+		final StringBuilder output = new StringBuilder();
+
+		final int status = PluginScmGit.doCommand(workspace, output, "fetch",
+				remoteName, spec);
+
+		if (status != 0) {
+			if (output.indexOf("couldn't find remote ref") >= 0) {
+				return null;
+			}
+			throw new IllegalStateException("Unexpected : " + output);
+		}
+
+		return resolve(workspace,
+				PluginScmGit.refRemotes(remoteName, remoteBranch));
+
+	}
+
+	public boolean isClean(final File workspace) {
+		return PluginScmGit.doCommand(workspace, "status", "--porcelain")
+				.trim().length() == 0;
+	}
+
+	public boolean isRepository(final File workspace) {
+		if (!new File(workspace, ".git").exists()) {
+			return false;
+		}
+		final StringBuilder output = new StringBuilder();
+		return PluginScmGit.doCommand(workspace, output, "rev-parse",
+				"--git-dir") == 0;
+	}
+
+	public String merge(final File workspace, final String commit) {
+
+		final String head = resolve(workspace, "HEAD");
+
+		if (commit.equals(head)) {
+			return MergeStatus.ALREADY_UP_TO_DATE.name();
+		}
+
+		final StringBuilder output = new StringBuilder();
+
+		final int status = PluginScmGit.doCommand(workspace, output, "merge",
+				"--no-edit", commit);
+
+		if (status != 0) {
+			PluginScmGit.doCommand(workspace, new StringBuilder(), "merge",
+					"--abort");
+			return MergeStatus.CONFLICTING.name();
+		}
+
+		if (output.indexOf("Already up") >= 0) {
+			return MergeStatus.ALREADY_UP_TO_DATE.name();
+		}
+		if (output.indexOf("Fast-forward") >= 0) {
+			return MergeStatus.FAST_FORWARD.name();
+		}
+		return MergeStatus.MERGED.name();
+
+	}
+
+	/**
+	 * Tracked files with working tree modifications, from the second column
+	 * of porcelain status.
+	 */
+	public Set<String> modified(final File workspace) {
+		final Set<String> modified = new TreeSet<String>();
+		final String output = PluginScmGit.doCommand(workspace, "status",
+				"--porcelain", "--untracked-files=no");
+		for (final String line : output.split("\n")) {
+			if (line.length() < 4) {
+				continue;
+			}
+			if (line.charAt(1) == 'M') {
+				modified.add(line.substring(3));
+			}
+		}
+		return modified;
+	}
+
+	public void pack(final File workspace, final boolean packRefs,
+			final boolean packObjects) {
+		if (packRefs) {
+			PluginScmGit.doCommand(workspace, "pack-refs", "--all", "--prune");
+		}
+		if (packObjects) {
+			PluginScmGit.doCommand(workspace, "repack", "-d", "-q");
+		}
+	}
+
+	public Set<String> pruneRefs(final File workspace, final String remoteName) {
+
+		final Set<String> remoteRefs = new HashSet<String>();
+		final String remoteList = PluginScmGit.doCommand(workspace,
+				"ls-remote", "--heads", "--tags", remoteName);
+		for (final String line : remoteList.split("\n")) {
+			final int index = line.indexOf('\t');
+			if (index < 0) {
+				continue;
+			}
+			remoteRefs.add(line.substring(index + 1).replace("^{}", ""));
+		}
+
+		final Set<String> localRefs = new HashSet<String>();
+		final String localList = PluginScmGit.doCommand(workspace,
+				"for-each-ref", "--format=%(refname)", Constants.R_TAGS,
+				Constants.R_REMOTES + remoteName + "/");
+		for (final String line : localList.split("\n")) {
+			final String name = line.trim();
+			if (name.length() > 0) {
+				localRefs.add(name);
+			}
+		}
+
+		final Set<String> staleSet = PluginScmGit.refStale(localRefs,
+				remoteRefs, remoteName);
+
+		for (final String name : staleSet) {
+			PluginScmGit.doCommand(workspace, "update-ref", "-d", name);
+		}
+
+		return staleSet;
+
+	}
+
+	/**
+	 * Push status from porcelain flag: ' ' fast-forward, '+' forced, '*' new,
+	 * '=' up to date, '!' rejected.
+	 */
+	public String push(final File workspace, final String remoteName,
+			final String localBranch, final String remoteBranch) {
+
+		final String spec = PluginScmGit.ref(false, localBranch, remoteBranch);
+
+		final StringBuilder output = new StringBuilder();
+
+		PluginScmGit.doCommand(workspace, output, "push", "--porcelain",
+				remoteName, spec);
+
+		final String target = PluginScmGit.refHeads(remoteBranch);
+
+		for (final String line : output.toString().split("\n")) {
+			if (line.length() < 2 || line.indexOf(target) < 0) {
+				continue;
+			}
+			switch (line.charAt(0)) {
+			case ' ':
+			case '+':
+			case '*':
+				return RemoteRefUpdate.Status.OK.name();
+			case '=':
+				return RemoteRefUpdate.Status.UP_TO_DATE.name();
+			case '!':
+				if (line.contains("non-fast-forward")
+						|| line.contains("fetch first")) {
+					return RemoteRefUpdate.Status.REJECTED_NONFASTFORWARD
+							.name();
+				}
+				return RemoteRefUpdate.Status.REJECTED_OTHER_REASON.name();
+			default:
+				continue;
+			}
+		}
+
+		return RemoteRefUpdate.Status.REJECTED_OTHER_REASON.name();
+
+	}
+
+	public String rebase(final File workspace, final PersonIdent person,
+			final String upstream) {
+
+		final String head = resolve(workspace, "HEAD");
+
+		if (upstream.equals(head)) {
+			return RebaseResult.Status.UP_TO_DATE.name();
+		}
+
+		final StringBuilder output = new StringBuilder();
+
+		final int status;
+		if (person == null) {
+			status = PluginScmGit.doCommand(workspace, output, "rebase",
+					upstream);
+		} else {
+			status = PluginScmGit.doCommand(workspace, output, "-c",
+					"user.name=" + person.getName(), "-c", "user.email="
+							+ person.getEmailAddress(), "rebase", upstream);
+		}
+
+		if (status != 0) {
+			PluginScmGit.doCommand(workspace, new StringBuilder(), "rebase",
+					"--abort");
+			return RebaseResult.Status.ABORTED.name();
+		}
+
+		if (output.indexOf("Fast-forwarded") >= 0) {
+			return RebaseResult.Status.FAST_FORWARD.name();
+		}
+		if (output.indexOf("is up to date") >= 0) {
+			return RebaseResult.Status.UP_TO_DATE.name();
+		}
+		return RebaseResult.Status.OK.name();
+
+	}
+
+	public void reset(final File workspace) {
+		PluginScmGit.doCommand(workspace, "reset", "--hard");
+	}
+
+	public String resolve(final File workspace, final String name) {
+		final StringBuilder output = new StringBuilder();
+		final int status = PluginScmGit.doCommand(workspace, output,
+				"rev-parse", "--verify", "--quiet", name + "^{commit}");
+		if (status != 0) {
+			return null;
+		}
+		return line(output.toString());
+	}
+
+}
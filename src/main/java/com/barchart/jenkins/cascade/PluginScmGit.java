@@ -7,8 +7,17 @@
  */
 package com.barchart.jenkins.cascade;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.CheckoutResult;
@@ -17,20 +26,29 @@ import org.eclipse.jgit.api.CreateBranchCommand.SetupUpstreamMode;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.api.RebaseCommand.Operation;
+import org.eclipse.jgit.api.RebaseResult;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.PushResult;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.IO;
 
 /**
  * Plugin SCM GIT utilities.
@@ -39,6 +57,16 @@ import org.eclipse.jgit.util.FileUtils;
  */
 public class PluginScmGit {
 
+	/**
+	 * Sparse checkout pattern file, relative to repository directory.
+	 */
+	public static final String SPARSE_CHECKOUT_FILE = "info/sparse-checkout";
+
+	/**
+	 * Core configuration key which enables sparse checkout.
+	 */
+	public static final String SPARSE_CHECKOUT_KEY = "sparsecheckout";
+
 	/**
 	 * Short name of current branch.
 	 */
@@ -126,6 +154,62 @@ public class PluginScmGit {
 		}
 	}
 
+	/**
+	 * Invoke native git command line in the workspace.
+	 * 
+	 * @return command output
+	 */
+	public static String doCommand(final File workspace,
+			final String... arguments) {
+		final StringBuilder output = new StringBuilder();
+		final int status = doCommand(workspace, output, arguments);
+		if (status != 0) {
+			throw new IllegalStateException("git "
+					+ Arrays.toString(arguments) + " : " + status + " : "
+					+ output);
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Invoke native git command line in the workspace.
+	 * 
+	 * @return command exit status
+	 */
+	public static int doCommand(final File workspace,
+			final StringBuilder output, final String... arguments) {
+		try {
+			final List<String> command = new ArrayList<String>();
+			command.add("git");
+			for (final String argument : arguments) {
+				command.add(argument);
+			}
+			final ProcessBuilder builder = new ProcessBuilder(command)
+					.directory(workspace).redirectErrorStream(true);
+			/** Command results are decided from english git messages. */
+			builder.environment().put("LC_ALL", "C");
+			builder.environment().put("LANG", "C");
+			builder.environment().put("LANGUAGE", "C");
+			final Process process = builder.start();
+			final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			final InputStream input = process.getInputStream();
+			try {
+				final byte[] buffer = new byte[4 * 1024];
+				int count;
+				while ((count = input.read(buffer)) != -1) {
+					stream.write(buffer, 0, count);
+				}
+			} finally {
+				input.close();
+			}
+			final int status = process.waitFor();
+			output.append(stream.toString("UTF-8"));
+			return status;
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * See {@link Git#commit()}
 	 */
@@ -156,6 +240,34 @@ public class PluginScmGit {
 		}
 	}
 
+	/**
+	 * See {@link Git#gc()}
+	 * <p>
+	 * Packs loose objects and references.
+	 */
+	public static Properties doGarbageCollect(final File workspace) {
+		try {
+			final Git git = Git.open(workspace);
+			return git.gc().call();
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * See {@link Git#lsRemote()}
+	 */
+	public static Collection<Ref> doLsRemote(final File workspace,
+			final String remote) {
+		try {
+			final Git git = Git.open(workspace);
+			return git.lsRemote().setRemote(remote).setHeads(true)
+					.setTags(true).call();
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * See {@link Git#merge()}
 	 */
@@ -194,6 +306,41 @@ public class PluginScmGit {
 		}
 	}
 
+	/**
+	 * See {@link Git#rebase()}
+	 * <p>
+	 * Aborts rebase which did not succeed.
+	 */
+	public static RebaseResult doRebase(final File workspace,
+			final ObjectId upstream) {
+		try {
+			final Git git = Git.open(workspace);
+			final RebaseResult result = git.rebase().setUpstream(upstream)
+					.call();
+			if (!isSuccess(result.getStatus())) {
+				git.rebase().setOperation(Operation.ABORT).call();
+			}
+			return result;
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Delete reference, regardless of merge state.
+	 */
+	public static RefUpdate.Result doRefDelete(final File workspace,
+			final String name) {
+		try {
+			final Git git = Git.open(workspace);
+			final RefUpdate update = git.getRepository().updateRef(name);
+			update.setForceUpdate(true);
+			return update.delete();
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Verify if workspace has git repository.
 	 */
@@ -214,12 +361,132 @@ public class PluginScmGit {
 	public static Ref doReset(final File workspace) {
 		try {
 			final Git git = Git.open(workspace);
+			/** JGit ignores skip-worktree and restores the full tree. */
+			if (isSparse(workspace)) {
+				doCommand(workspace, "reset", "--hard");
+				return git.getRepository().getRef(Constants.HEAD);
+			}
 			return git.reset().setMode(ResetType.HARD).call();
 		} catch (final Throwable e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Content of a file in HEAD commit, or null when missing.
+	 * 
+	 * @param path
+	 *            file path relative to repository root
+	 */
+	public static byte[] doReadHead(final File workspace, final String path) {
+		try {
+			final Repository repo = Git.open(workspace).getRepository();
+			final ObjectId tree = repo.resolve(Constants.HEAD + "^{tree}");
+			if (tree == null) {
+				return null;
+			}
+			final TreeWalk walk = TreeWalk.forPath(repo, path, tree);
+			if (walk == null) {
+				return null;
+			}
+			try {
+				return repo.open(walk.getObjectId(0)).getBytes();
+			} finally {
+				walk.release();
+			}
+		} catch (final RepositoryNotFoundException e) {
+			return null;
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Restrict working tree to the path patterns.
+	 * <p>
+	 * JGit has no sparse checkout support, so tree update is done by native
+	 * git.
+	 * 
+	 * @return true, if sparse checkout patterns were changed
+	 */
+	public static boolean doSparseCheckout(final File workspace,
+			final Collection<String> patternList) {
+		final boolean isChanged = doSparseConfig(workspace, patternList);
+		/** Also drops paths left by checkout of a non-sparse repository. */
+		doCommand(workspace, "read-tree", "-mu", "HEAD");
+		return isChanged;
+	}
+
+	/**
+	 * Enable sparse checkout with the path patterns, w/o working tree update;
+	 * next native checkout materializes only matching paths.
+	 * 
+	 * @return true, if sparse checkout patterns were changed
+	 */
+	public static boolean doSparseConfig(final File workspace,
+			final Collection<String> patternList) {
+		try {
+
+			final Git git = Git.open(workspace);
+
+			final File sparseFile = new File(git.getRepository()
+					.getDirectory(), SPARSE_CHECKOUT_FILE);
+
+			final StringBuilder text = new StringBuilder();
+			for (final String pattern : patternList) {
+				text.append(pattern);
+				text.append("\n");
+			}
+
+			final StoredConfig config = git.getRepository().getConfig();
+
+			final boolean isEnabled = config.getBoolean(
+					ConfigConstants.CONFIG_CORE_SECTION, null,
+					SPARSE_CHECKOUT_KEY, false);
+
+			if (isEnabled && sparseFile.exists()) {
+				final String past = new String(IO.readFully(sparseFile),
+						"UTF-8");
+				if (past.equals(text.toString())) {
+					return false;
+				}
+			}
+
+			FileUtils.mkdirs(sparseFile.getParentFile(), true);
+			final FileOutputStream output = new FileOutputStream(sparseFile);
+			try {
+				output.write(text.toString().getBytes("UTF-8"));
+			} finally {
+				output.close();
+			}
+
+			config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+					SPARSE_CHECKOUT_KEY, true);
+			config.save();
+
+			return true;
+
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Check if repository has sparse checkout enabled.
+	 */
+	public static boolean isSparse(final File workspace) {
+		try {
+			final StoredConfig config = Git.open(workspace).getRepository()
+					.getConfig();
+			return config.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+					null, SPARSE_CHECKOUT_KEY, false);
+		} catch (final RepositoryNotFoundException e) {
+			return false;
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * See {@link Git#status()}
 	 */
@@ -244,6 +511,46 @@ public class PluginScmGit {
 		}
 	}
 
+	/**
+	 * Repository meta data folder with objects and references; for linked
+	 * worktree, where .git is a file, this is the main repository folder.
+	 */
+	public static File gitDir(final File workspace) {
+		try {
+			final File dotGit = new File(workspace, Constants.DOT_GIT);
+			if (!dotGit.exists()) {
+				return dotGit;
+			}
+			File gitDir;
+			if (dotGit.isFile()) {
+				/** Linked worktree: "gitdir: path" */
+				final String link = new String(IO.readFully(dotGit), "UTF-8")
+						.trim();
+				gitDir = resolve(workspace,
+						link.substring(link.indexOf(':') + 1).trim());
+			} else {
+				gitDir = new FileRepositoryBuilder().findGitDir(workspace)
+						.getGitDir();
+			}
+			final File commonDir = new File(gitDir, "commondir");
+			if (commonDir.isFile()) {
+				gitDir = resolve(gitDir, new String(IO.readFully(commonDir),
+						"UTF-8").trim());
+			}
+			return gitDir.getCanonicalFile();
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Resolve absolute or relative path against base folder.
+	 */
+	static File resolve(final File base, final String path) {
+		final File file = new File(path);
+		return file.isAbsolute() ? file : new File(base, path);
+	}
+
 	public static boolean isSuccess(final CheckoutResult.Status checkoutStatus) {
 		switch (checkoutStatus) {
 		case OK:
@@ -253,6 +560,17 @@ public class PluginScmGit {
 		}
 	}
 
+	public static boolean isSuccess(final RebaseResult.Status rebaseStatus) {
+		switch (rebaseStatus) {
+		case OK:
+		case UP_TO_DATE:
+		case FAST_FORWARD:
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	public static boolean isSuccess(final RemoteRefUpdate.Status pushStatus) {
 		switch (pushStatus) {
 		case OK:
@@ -263,6 +581,146 @@ public class PluginScmGit {
 		}
 	}
 
+	/**
+	 * Verify checkout status name reported by {@link PluginScmBackend}.
+	 */
+	public static boolean isCheckoutSuccess(final String statusName) {
+		return isSuccess(CheckoutResult.Status.valueOf(statusName));
+	}
+
+	/**
+	 * Verify merge status name reported by {@link PluginScmBackend}.
+	 */
+	public static boolean isMergeSuccess(final String statusName) {
+		return MergeResult.MergeStatus.valueOf(statusName).isSuccessful();
+	}
+
+	/**
+	 * Verify if push status name reported by {@link PluginScmBackend} can be
+	 * resolved by rebase onto new remote head.
+	 */
+	public static boolean isPushRejectedNonFastForward(final String statusName) {
+		switch (RemoteRefUpdate.Status.valueOf(statusName)) {
+		case REJECTED_NONFASTFORWARD:
+		case REJECTED_REMOTE_CHANGED:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Verify push status name reported by {@link PluginScmBackend}.
+	 */
+	public static boolean isPushSuccess(final String statusName) {
+		return isSuccess(RemoteRefUpdate.Status.valueOf(statusName));
+	}
+
+	/**
+	 * Count loose objects in repository object store.
+	 */
+	public static int looseObjectCount(final File workspace) {
+		final File objects = new File(gitDir(workspace), "objects");
+		final File[] folderList = objects.listFiles();
+		if (folderList == null) {
+			return 0;
+		}
+		int count = 0;
+		for (final File folder : folderList) {
+			if (folder.getName().length() != 2 || !folder.isDirectory()) {
+				continue;
+			}
+			final String[] fileList = folder.list();
+			if (fileList != null) {
+				count += fileList.length;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count loose references in repository reference store.
+	 */
+	public static int looseRefCount(final File workspace) {
+		return looseRefCount(new File(gitDir(workspace), "refs"));
+	}
+
+	private static int looseRefCount(final File folder) {
+		final File[] fileList = folder.listFiles();
+		if (fileList == null) {
+			return 0;
+		}
+		int count = 0;
+		for (final File file : fileList) {
+			if (file.isDirectory()) {
+				count += looseRefCount(file);
+			} else {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Reference names under the prefix, with prefix removed.
+	 */
+	public static Set<String> refList(final File workspace,
+			final String prefix) {
+		try {
+			final Git git = Git.open(workspace);
+			return new TreeSet<String>(git.getRepository().getRefDatabase()
+					.getRefs(prefix).keySet());
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Local tags and remote tracking branches without remote counterpart.
+	 * 
+	 * @param localRefs
+	 *            local tag and remote tracking reference names
+	 * @param remoteRefs
+	 *            remote head and tag reference names
+	 */
+	public static Set<String> refStale(final Collection<String> localRefs,
+			final Collection<String> remoteRefs, final String remoteName) {
+
+		final String remotePrefix = Constants.R_REMOTES + remoteName + "/";
+
+		final Set<String> staleSet = new TreeSet<String>();
+
+		for (final String localRef : localRefs) {
+			if (localRef.startsWith(Constants.R_TAGS)) {
+				if (!remoteRefs.contains(localRef)) {
+					staleSet.add(localRef);
+				}
+				continue;
+			}
+			if (localRef.startsWith(remotePrefix)) {
+				final String branch = localRef
+						.substring(remotePrefix.length());
+				if (Constants.HEAD.equals(branch)) {
+					continue;
+				}
+				if (!remoteRefs.contains(refHeads(branch))) {
+					staleSet.add(localRef);
+				}
+				continue;
+			}
+		}
+
+		return staleSet;
+
+	}
+
+	/**
+	 * Verify rebase status name reported by {@link PluginScmBackend}.
+	 */
+	public static boolean isRebaseSuccess(final String statusName) {
+		return isSuccess(RebaseResult.Status.valueOf(statusName));
+	}
+
 	/**
 	 * Source:Target branch reference for push.
 	 * <p>
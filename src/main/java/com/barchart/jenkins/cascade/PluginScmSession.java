@@ -0,0 +1,484 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.maven.MavenModuleSet;
+import hudson.plugins.git.GitSCM;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.json.JSONObject;
+
+import org.eclipse.jgit.lib.PersonIdent;
+
+/**
+ * Plugin SCM session: script of repository operations executed in a single
+ * remote workspace call.
+ * <p>
+ * Script stops on first failed step; report contains status and timing of
+ * each executed step.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class PluginScmSession implements Serializable {
+
+	/**
+	 * Session script operation.
+	 */
+	public static enum Operation {
+
+		/** Fetch and merge remote branch. */
+		UPDATE, //
+
+		/** Commit file pattern if modified. */
+		COMMIT, //
+
+		/** Push local branch into remote branch. */
+		PUSH, //
+
+		/** Verify remote tracking branch is at local branch head. */
+		VERIFY, //
+
+		;
+
+	}
+
+	/**
+	 * Session script step with execution result.
+	 */
+	public static class Step implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String argument;
+		private long millis;
+		private final Map<String, Long> timing = new LinkedHashMap<String, Long>();
+		private final Operation operation;
+		private int retries;
+		private String status;
+		private boolean success;
+
+		public Step(final Operation operation, final String argument) {
+			this.operation = operation;
+			this.argument = argument;
+		}
+
+		/** Operation argument, such as commit pattern or reference name. */
+		public String argument() {
+			return argument;
+		}
+
+		/** Step is executed and successful. */
+		public boolean isSuccess() {
+			return success;
+		}
+
+		/** Step execution time. */
+		public long millis() {
+			return millis;
+		}
+
+		public Operation operation() {
+			return operation;
+		}
+
+		/** Number of operation retries. */
+		public int retries() {
+			return retries;
+		}
+
+		/** Operation status, JGit status enum name or commit id. */
+		public String status() {
+			return status;
+		}
+
+		/** Accumulate time of a git operation. */
+		void time(final String name, final long timeStart) {
+			final Long past = timing.get(name);
+			final long delta = System.currentTimeMillis() - timeStart;
+			timing.put(name, past == null ? delta : past + delta);
+		}
+
+		/** Git operation times by name: fetch, merge, commit, push, rebase. */
+		public Map<String, Long> timing() {
+			return timing;
+		}
+
+		@Override
+		public String toString() {
+			return operation + "(" + argument + ")" + " status=" + status
+					+ " success=" + success + " retries=" + retries
+					+ " millis=" + millis;
+		}
+
+	}
+
+	/** Merge result status when remote branch has no new commits. */
+	public static final String NO_UPDATE = "NO_UPDATE";
+
+	/** Commit result status when pattern has no modifications. */
+	public static final String NO_CHANGE = "NO_CHANGE";
+
+	/**
+	 * Maximum number of push retries after rebase onto new remote head.
+	 */
+	public static final int PUSH_RETRY_LIMIT = Integer.getInteger(
+			PluginScmSession.class.getName() + ".pushRetryLimit", 3);
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Commit file pattern if modified.
+	 */
+	public static Step doCommit(final Step step, final BuildLogger logger,
+			final PluginScmBackend backend, final File basedir,
+			final PersonIdent person) {
+
+		final String pattern = step.argument;
+
+		final long timeStart = System.currentTimeMillis();
+
+		final Set<String> modifiedSet = backend.modified(basedir);
+
+		if (!modifiedSet.contains(pattern)) {
+			logger.logTab("no change: " + pattern);
+			step.status = NO_CHANGE;
+			step.success = true;
+			return step;
+		}
+
+		backend.add(basedir, pattern);
+		logger.logTab("added: " + pattern);
+
+		final String commitMessage = "[cascade]" + " " + pattern;
+
+		final String commit = backend.commit(basedir, person, commitMessage);
+		logger.logTab("commit: " + commit);
+
+		step.time("commit", timeStart);
+
+		step.status = commit;
+		step.success = true;
+		return step;
+
+	}
+
+	/**
+	 * Push local branch into remote branch.
+	 * <p>
+	 * When remote branch moved, fetch it, rebase local commits onto new
+	 * remote head and retry, up to {@link #PUSH_RETRY_LIMIT} times.
+	 */
+	public static Step doPush(final Step step, final BuildLogger logger,
+			final PluginScmBackend backend, final File basedir,
+			final PersonIdent person, final String localBranch,
+			final String remoteName, final String remoteBranch) {
+
+		while (true) {
+
+			final long timeStart = System.currentTimeMillis();
+
+			final String pushStatus = backend.push(basedir, remoteName,
+					localBranch, remoteBranch);
+
+			final long timeFinish = System.currentTimeMillis();
+
+			step.time("push", timeStart);
+
+			logger.logTab("push status: " + pushStatus + " ("
+					+ (timeFinish - timeStart) + " ms)");
+
+			step.status = pushStatus;
+			step.success = PluginScmGit.isPushSuccess(pushStatus);
+
+			if (step.success) {
+				return step;
+			}
+
+			if (!PluginScmGit.isPushRejectedNonFastForward(pushStatus)) {
+				return step;
+			}
+
+			if (step.retries >= PUSH_RETRY_LIMIT) {
+				logger.logErr("push retry limit reached: " + PUSH_RETRY_LIMIT);
+				return step;
+			}
+
+			step.retries++;
+
+			logger.logTab("push retry: " + step.retries);
+
+			/** Head of the remote branch. */
+			final long timeFetch = System.currentTimeMillis();
+			final String commit = backend.fetch(basedir, remoteName,
+					remoteBranch);
+			step.time("fetch", timeFetch);
+
+			if (commit == null) {
+				logger.logErr("remote branch not found: "
+						+ PluginScmGit.refHeads(remoteBranch));
+				return step;
+			}
+
+			final long timeRebase = System.currentTimeMillis();
+			final String rebaseStatus = backend.rebase(basedir, person,
+					commit);
+			step.time("rebase", timeRebase);
+
+			logger.logTab("rebase status: " + rebaseStatus);
+
+			if (!PluginScmGit.isRebaseSuccess(rebaseStatus)) {
+				step.status = rebaseStatus;
+				return step;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Fetch and merge remote branch into current local branch.
+	 */
+	public static Step doUpdate(final Step step, final BuildLogger logger,
+			final PluginScmBackend backend, final File basedir,
+			final String localBranch, final String remoteName,
+			final String remoteBranch) {
+
+		final String localBranchCurrent = backend.branch(basedir);
+
+		if (!localBranchCurrent.equals(localBranch)) {
+			logger.logErr("branch mismatch: " + localBranchCurrent + "/"
+					+ localBranch);
+			step.status = "BRANCH_MISMATCH";
+			return step;
+		}
+
+		/** Spec of the head of the local remote tracking branch. */
+		final String refRemote = PluginScmGit.refRemotes(remoteName,
+				remoteBranch);
+
+		final String commitPast = backend.resolve(basedir, refRemote);
+
+		/** Head of the remote branch. */
+		final long timeFetch = System.currentTimeMillis();
+		final String commit = backend.fetch(basedir, remoteName, remoteBranch);
+		step.time("fetch", timeFetch);
+
+		if (commit == null) {
+			logger.logErr("remote branch not found: "
+					+ PluginScmGit.refHeads(remoteBranch));
+			step.status = "BRANCH_MISSING";
+			return step;
+		}
+
+		if (commit.equals(commitPast)) {
+			logger.logTab("fetch status: " + "no update");
+			step.status = NO_UPDATE;
+			step.success = true;
+			return step;
+		}
+
+		logger.logTab("fetch status: " + commit);
+
+		final long timeMerge = System.currentTimeMillis();
+		final String mergeStatus = backend.merge(basedir, commit);
+		step.time("merge", timeMerge);
+		logger.logTab("merge status: " + mergeStatus);
+
+		step.status = mergeStatus;
+		step.success = PluginScmGit.isMergeSuccess(mergeStatus);
+		return step;
+
+	}
+
+	/**
+	 * Verify remote tracking branch is at local branch head, after push.
+	 */
+	public static Step doVerify(final Step step, final BuildLogger logger,
+			final PluginScmBackend backend, final File basedir,
+			final String localBranch, final String remoteName,
+			final String remoteBranch) {
+
+		final String commitLocal = backend.resolve(basedir,
+				PluginScmGit.refHeads(localBranch));
+
+		final String commitRemote = backend.resolve(basedir,
+				PluginScmGit.refRemotes(remoteName, remoteBranch));
+
+		logger.logTab("verify: local=" + commitLocal + " remote="
+				+ commitRemote);
+
+		step.status = commitRemote;
+		step.success = commitRemote != null
+				&& commitRemote.equals(commitLocal);
+		return step;
+
+	}
+
+	private final List<Step> stepList = new ArrayList<Step>();
+
+	/**
+	 * Append commit of file pattern.
+	 */
+	public PluginScmSession commit(final String pattern) {
+		stepList.add(new Step(Operation.COMMIT, pattern));
+		return this;
+	}
+
+	/**
+	 * Append push of local branch into remote branch.
+	 */
+	public PluginScmSession push() {
+		stepList.add(new Step(Operation.PUSH, null));
+		return this;
+	}
+
+	/**
+	 * Execute session script in project workspace.
+	 * 
+	 * @return executed steps, last one is failed when script is aborted
+	 */
+	public List<Step> run(final BuildContext<?> context,
+			final MavenModuleSet project) throws IOException,
+			InterruptedException {
+
+		final String message = PluginScm.checkScm(project);
+
+		if (message != null) {
+			throw new IllegalStateException(message);
+		}
+
+		if (stepList.isEmpty()) {
+			return new ArrayList<Step>();
+		}
+
+		final GitSCM gitScm = (GitSCM) project.getScm();
+		final FilePath workspace = PluginScm.workspace(context, project);
+
+		/** Remote objects. */
+		final BuildLogger logger = context.logger();
+		final PluginScmBackend backend = PluginScm.backend(context);
+		final PersonIdent person = PluginScm.person(gitScm);
+		final String localBranch = PluginScm.localBranchName(context,
+				project);
+		final String remoteName = PluginScm.remoteName(gitScm);
+		final String remoteBranch = PluginScm.remoteBranchName(gitScm);
+		final List<Step> script = stepList;
+
+		/** Remote operation. */
+		final FileCallable<List<Step>> callable = new FileCallable<List<Step>>() {
+
+			private static final long serialVersionUID = 1L;
+
+			public List<Step> invoke(final File basedir,
+					final VirtualChannel channel) throws IOException,
+					InterruptedException {
+
+				final List<Step> report = new ArrayList<Step>();
+
+				for (final Step step : script) {
+
+					final long timeStart = System.currentTimeMillis();
+
+					try {
+						switch (step.operation) {
+						case UPDATE:
+							doUpdate(step, logger, backend, basedir,
+									localBranch, remoteName, remoteBranch);
+							break;
+						case COMMIT:
+							doCommit(step, logger, backend, basedir, person);
+							break;
+						case PUSH:
+							doPush(step, logger, backend, basedir, person,
+									localBranch, remoteName, remoteBranch);
+							break;
+						case VERIFY:
+							doVerify(step, logger, backend, basedir,
+									localBranch, remoteName, remoteBranch);
+							break;
+						}
+					} catch (final Throwable e) {
+						logger.logExc(e);
+						step.status = e.getClass().getSimpleName();
+						step.success = false;
+					}
+
+					step.millis = System.currentTimeMillis() - timeStart;
+
+					report.add(step);
+
+					if (!step.success) {
+						break;
+					}
+
+				}
+
+				return report;
+			}
+		};
+
+		final List<Step> report = workspace.act(callable);
+
+		/** Steps are timed remotely, metrics and events live here. */
+		for (final Step step : report) {
+			for (final Map.Entry<String, Long> entry : step.timing().entrySet()) {
+				PluginMetrics.update("scm." + entry.getKey(), entry.getValue());
+			}
+			BuildEventLog.emit(context, "scm.op", "project", project.getName(),
+					"op", step.operation(), "status", step.status(),
+					"success", step.isSuccess(), "retries", step.retries(),
+					"millis", step.millis(), "timing",
+					JSONObject.fromObject(step.timing()));
+		}
+
+		for (final Step step : report) {
+			if (!step.isSuccess()) {
+				context.logger().logErr("scm failure: " + step);
+				throw new IllegalStateException("Unexpected");
+			}
+		}
+
+		return report;
+
+	}
+
+	/**
+	 * Script steps in execution order.
+	 */
+	public List<Step> stepList() {
+		return stepList;
+	}
+
+	/**
+	 * Append fetch and merge of remote branch.
+	 */
+	public PluginScmSession update() {
+		stepList.add(new Step(Operation.UPDATE, null));
+		return this;
+	}
+
+	/**
+	 * Append verification of pushed local branch.
+	 */
+	public PluginScmSession verify() {
+		stepList.add(new Step(Operation.VERIFY, null));
+		return this;
+	}
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+/**
+ * Plugin SCM backend selector.
+ * 
+ * @author Andrei Pozolotin
+ */
+public enum PluginScmType {
+
+	/** Embedded JGit library. */
+	JGIT("jgit"), //
+
+	/** Native git command line. */
+	NATIVE("native"), //
+
+	;
+
+	/**
+	 * Produce backend instance for this type.
+	 */
+	public PluginScmBackend backend() {
+		switch (this) {
+		case NATIVE:
+			return new PluginScmBackendNative();
+		default:
+			return new PluginScmBackendJgit();
+		}
+	}
+
+	public final String name;
+
+	PluginScmType(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Restore enum from layout option, defaults to {@link #JGIT}.
+	 */
+	public static PluginScmType from(final String name) {
+		if (name == null) {
+			return JGIT;
+		}
+		for (final PluginScmType type : PluginScmType.values()) {
+			if (type.name.equalsIgnoreCase(name.trim())) {
+				return type;
+			}
+		}
+		return JGIT;
+	}
+
+}
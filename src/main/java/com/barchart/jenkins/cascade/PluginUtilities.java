@@ -21,10 +21,13 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.ListView;
 import hudson.model.View;
+import hudson.util.DescribableList;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -93,9 +96,18 @@ public class PluginUtilities {
 	 */
 	public static void changeField(final Object instance,
 			final String fieldName, final Object value) throws IOException {
+		changeField(instance, instance.getClass(), fieldName, value);
+	}
+
+	/**
+	 * Change known instance field declared by a super class.
+	 */
+	public static void changeField(final Object instance,
+			final Class<?> klaz, final String fieldName, final Object value)
+			throws IOException {
 		try {
 
-			final Field field = instance.getClass().getDeclaredField(fieldName);
+			final Field field = klaz.getDeclaredField(fieldName);
 
 			field.setAccessible(true);
 
@@ -106,6 +118,69 @@ public class PluginUtilities {
 		}
 	}
 
+	/**
+	 * Copy persisted fields declared from instance class up to, but
+	 * excluding, the stop class. Describable lists are updated in place to
+	 * preserve their owner.
+	 * 
+	 * @return names of copied fields
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static List<String> copyFields(final Object source,
+			final Object target, final Class<?> stopClass,
+			final Set<String> excludeSet) throws IOException {
+		try {
+
+			final List<String> nameList = new ArrayList<String>();
+
+			Class<?> klaz = target.getClass();
+
+			while (klaz != null && klaz != stopClass) {
+
+				for (final Field field : klaz.getDeclaredFields()) {
+
+					final int modifiers = field.getModifiers();
+
+					if (Modifier.isStatic(modifiers)
+							|| Modifier.isTransient(modifiers)) {
+						continue;
+					}
+
+					if (excludeSet.contains(field.getName())) {
+						continue;
+					}
+
+					field.setAccessible(true);
+
+					final Object sourceValue = field.get(source);
+					final Object targetValue = field.get(target);
+
+					if (sourceValue instanceof DescribableList
+							&& targetValue instanceof DescribableList) {
+						((DescribableList) targetValue)
+								.replaceBy(((DescribableList) sourceValue)
+										.toList());
+					} else {
+						field.set(target, sourceValue);
+					}
+
+					nameList.add(field.getName());
+
+				}
+
+				klaz = klaz.getSuperclass();
+
+			}
+
+			return nameList;
+
+		} catch (final IOException e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IOException(e);
+		}
+	}
+
 	/**
 	 * Perform deep object clone.
 	 */
@@ -349,9 +424,17 @@ public class PluginUtilities {
 	public static List<Dependency> mavenDependencies(final FilePath pomFile,
 			final DependencyMatcher matcher) throws Exception {
 
-		final List<Dependency> resultList = new ArrayList<Dependency>();
+		return mavenDependencies(mavenModel(pomFile), matcher);
 
-		final Model model = mavenModel(pomFile);
+	}
+
+	/**
+	 * Collect matching dependencies from a maven model.
+	 */
+	public static List<Dependency> mavenDependencies(final Model model,
+			final DependencyMatcher matcher) {
+
+		final List<Dependency> resultList = new ArrayList<Dependency>();
 
 		final List<Dependency> dependencyManagementList = model
 				.getDependencyManagement().getDependencies();
@@ -390,10 +473,25 @@ public class PluginUtilities {
 	 */
 	public static Model mavenModel(final FilePath pomFile) throws IOException {
 		try {
+			return mavenModel(pomFile.read());
+		} catch (final IOException e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Parse pom.xml content into maven model.
+	 */
+	public static Model mavenModel(final InputStream input) throws IOException {
+		try {
+
+			PluginMetrics.count("maven.pom.parse");
 
 			final MavenXpp3Reader xmlReader = new MavenXpp3Reader();
 
-			final Model model = xmlReader.read(pomFile.read());
+			final Model model = xmlReader.read(input);
 
 			ensureFields(model);
 
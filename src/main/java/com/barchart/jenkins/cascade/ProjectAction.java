@@ -21,6 +21,7 @@ public enum ProjectAction {
 	CREATE("create"), //
 	DELETE("delete"), //
 	UPDATE("update"), //
+	SYNC("sync"), //
 
 	;
 
@@ -32,6 +33,8 @@ public enum ProjectAction {
 			return new DoDeleteBadge();
 		case UPDATE:
 			return new DoUpdateBadge();
+		case SYNC:
+			return new DoSyncBadge();
 		default:
 			return new DoUnknownBadge();
 		}
@@ -14,6 +14,7 @@ import hudson.maven.MavenModuleSet;
 import hudson.model.Action;
 import hudson.model.JobProperty;
 import hudson.model.JobPropertyDescriptor;
+import hudson.model.Result;
 import hudson.model.TopLevelItem;
 import hudson.model.AbstractProject;
 import hudson.model.Job;
@@ -349,14 +350,22 @@ public class ProjectIdentity extends JobProperty<AbstractProject<?, ?>>
 		return memberList;
 	}
 
+	private String configDigest;
+
 	private final String familyID;
 
 	private String log = new DateTime() + " " + "Log started.";
 
+	private String memberDigest;
+
 	private final String projectID;
 
 	private final String projectRole;
 
+	private String validateResult;
+
+	private String validateURL;
+
 	public ProjectIdentity( //
 			final ProjectRole role,//
 			final String familyID, //
@@ -562,6 +571,34 @@ public class ProjectIdentity extends JobProperty<AbstractProject<?, ?>>
 		log = log + "\n" + new DateTime() + " " + text;
 	}
 
+	/**
+	 * Digest of member config, w/o identity, after last layout update.
+	 */
+	public String configDigest() {
+		return configDigest;
+	}
+
+	/**
+	 * Store digest of member config, w/o identity, after layout update.
+	 */
+	public void configDigest(final String digest) {
+		configDigest = digest;
+	}
+
+	/**
+	 * Digest of member configuration derived from layout.
+	 */
+	public String memberDigest() {
+		return memberDigest;
+	}
+
+	/**
+	 * Store digest of member configuration derived from layout.
+	 */
+	public void memberDigest(final String digest) {
+		memberDigest = digest;
+	}
+
 	/**
 	 * Find member project by family.
 	 */
@@ -599,6 +636,30 @@ public class ProjectIdentity extends JobProperty<AbstractProject<?, ?>>
 		return memberProjectList(getFamilyID());
 	}
 
+	/**
+	 * Store member module result of layout reactor validation.
+	 */
+	public void validate(final Result result, final String url) {
+		validateResult = result == null ? null : result.toString();
+		validateURL = url;
+	}
+
+	/**
+	 * Member module result of last layout reactor validation, or null.
+	 */
+	public Result validateResult() {
+		return validateResult == null ? null : Result
+				.fromString(validateResult);
+	}
+
+	/**
+	 * Member module build of last layout reactor validation, relative to
+	 * context root, or null.
+	 */
+	public String validateURL() {
+		return validateURL;
+	}
+
 	/**
 	 * Find project role.
 	 */
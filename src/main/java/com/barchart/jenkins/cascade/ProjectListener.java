@@ -63,7 +63,7 @@ public class ProjectListener extends ItemListener {
 			case MEMBER:
 				/** No identity, update description. */
 				final String sourceDescription = sourceProject.getDescription();
-				final String targetDescription = "<p>ORPHAN PROJECT<p>";
+				final String targetDescription = LayoutLogic.ORPHAN_MARKER;
 				final String description = sourceDescription
 						+ targetDescription;
 				targetProject.setDescription(description);
@@ -78,4 +78,44 @@ public class ProjectListener extends ItemListener {
 		}
 	}
 
+	/**
+	 * Drop cached family graph.
+	 */
+	@Override
+	public void onDeleted(final Item item) {
+		invalidateGraph(item);
+	}
+
+	/**
+	 * Drop cached family graph.
+	 */
+	@Override
+	public void onRenamed(final Item item, final String oldName,
+			final String newName) {
+		invalidateGraph(item);
+	}
+
+	/**
+	 * Drop cached family graph.
+	 */
+	@Override
+	public void onUpdated(final Item item) {
+		invalidateGraph(item);
+	}
+
+	/**
+	 * Drop cached family graph of a family project.
+	 */
+	protected void invalidateGraph(final Item item) {
+		if (!(item instanceof AbstractProject)) {
+			return;
+		}
+		final String familyID = ProjectIdentity
+				.familyID((AbstractProject<?, ?>) item);
+		if (familyID == null) {
+			return;
+		}
+		GraphFamilyCache.invalidate(familyID);
+	}
+
 }
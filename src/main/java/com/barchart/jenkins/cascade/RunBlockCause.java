@@ -5,12 +5,10 @@
  *
  * http://www.opensource.org/licenses/bsd-license.php
  */
-package design.run_exclusion;
+package com.barchart.jenkins.cascade;
 
 import hudson.model.queue.CauseOfBlockage;
 
-import com.barchart.jenkins.cascade.PluginConstants;
-
 /**
  * Description why a build is in a blocked state.
  * 
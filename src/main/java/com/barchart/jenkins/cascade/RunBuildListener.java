@@ -5,7 +5,7 @@
  *
  * http://www.opensource.org/licenses/bsd-license.php
  */
-package design.run_exclusion;
+package com.barchart.jenkins.cascade;
 
 import hudson.Extension;
 import hudson.model.TaskListener;
@@ -15,8 +15,6 @@ import hudson.model.listeners.RunListener;
 
 import java.util.logging.Logger;
 
-import com.barchart.jenkins.cascade.ProjectIdentity;
-
 /**
  * Helps cascade family build mutual exclusion.
  * 
@@ -62,6 +60,7 @@ public class RunBuildListener extends RunListener<AbstractBuild<?, ?>> {
 		final RunLock lock = RunLock.ensure(identity.getFamilyID());
 
 		synchronized (lock) {
+			lock.setQueued(identity.role(), false);
 			lock.setActive(identity.role(), true);
 		}
 
@@ -28,7 +28,9 @@ import java.util.TreeSet;
 import java.util.logging.Logger;
 
 /**
- * Prevents external build submission during cascade operations.
+ * Prevents build submission for broken cascade families.
+ * <p>
+ * Concurrent execution is controlled by {@link RunDispatcher}.
  * 
  * @author Andrei Pozolotin
  */
@@ -154,7 +156,7 @@ public class RunDecider extends QueueDecisionHandler implements PluginConstants
 	}
 
 	/**
-	 * Concurrent execution mutual exclusion logic.
+	 * Drop tasks of a family without layout project.
 	 */
 	@Override
 	public boolean shouldSchedule(final Task task, final List<Action> actionList) {
@@ -173,58 +175,26 @@ public class RunDecider extends QueueDecisionHandler implements PluginConstants
 			return true;
 		}
 
-		final MavenModuleSet layoutProject = identity.layoutProject();
-		final CascadeProject cascadeProject = identity.cascadeProject();
+		final RunLock lock = RunLock.ensure(identity.getFamilyID());
+
+		final MavenModuleSet layoutProject = lock.layoutProject();
 
 		/** Layout project constraint. */
 		if (layoutProject == null) {
 			report(identity, project, actionList,
 					"Unexpected: layout project is missing, drop the task.");
-			return false;
-		}
-		if (layoutProject.isBuilding()) {
-			if (LayoutLogicAction.hasAction(actionList)) {
-				report(identity, project, actionList,
-						"Permit task started by layout project.");
-				return true;
-			} else {
-				report(identity, project, actionList,
-						"Layout  project is building, drop the task.");
-				return false;
-			}
-		}
-		if (queueHas(layoutProject)) {
-			report(identity, project, actionList,
-					"Layout  project is pending, drop the task.");
+			PluginMetrics.count("run.decider.drop");
 			return false;
 		}
 
-		/** Cascade project constraint. */
-		if (cascadeProject == null) {
-			report(identity, project, actionList,
-					"Permit task while there is no cascade project.");
-			// report(identity);
-			return true;
-		}
-		if (cascadeProject.isBuilding()) {
-			if (CascadeLogicAction.hasAction(actionList)) {
-				report(identity, project, actionList,
-						"Permit task started by cascade project.");
-				return true;
-			} else {
-				report(identity, project, actionList,
-						"Cascade project is building, drop the task.");
-				return false;
-			}
-		}
-		if (queueHas(cascadeProject)) {
-			report(identity, project, actionList,
-					"Cascade project is pending, drop the task.");
-			return false;
+		synchronized (lock) {
+			lock.setQueued(identity.role(), true);
 		}
 
+		/** Family mutual exclusion is enforced by the dispatcher. */
 		report(identity, project, actionList,
-				"Unconstrained condition, permit the task.");
+				"Permit the task, run is controlled by dispatcher.");
+		PluginMetrics.count("run.decider.permit");
 
 		return true;
 
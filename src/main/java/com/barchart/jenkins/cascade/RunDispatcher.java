@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.Extension;
+import hudson.maven.MavenModuleSet;
+import hudson.model.Action;
+import hudson.model.AbstractProject;
+import hudson.model.Cause;
+import hudson.model.Queue;
+import hudson.model.Queue.Item;
+import hudson.model.queue.QueueTaskDispatcher;
+import hudson.model.queue.CauseOfBlockage;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Controls when cascade family project builds are permitted to run.
+ * <p>
+ * Family tasks are never dropped, they wait in the queue with a blockage
+ * cause; see {@link RunDecider}.
+ * <p>
+ * Member builds are also limited by {@link LayoutOptions#getMemberBuildLimit()}.
+ * 
+ * @author Andrei Pozolotin
+ */
+@Extension
+public class RunDispatcher extends QueueTaskDispatcher {
+
+	protected final static Logger log = Logger.getLogger(RunDispatcher.class
+			.getName());
+
+	/**
+	 * Cause of no block.
+	 */
+	public static final CauseOfBlockage YES_CAN_RUN = null;
+
+	/**
+	 * Last decision by queue item id; queue polls items on every
+	 * maintenance pass, metrics count decision changes only.
+	 */
+	private static final ConcurrentMap<Integer, Boolean> blockMap = new ConcurrentHashMap<Integer, Boolean>();
+
+	/**
+	 * Count decision when it changes for the queue item.
+	 */
+	static void decision(final Queue.Item item, final boolean isBlocked) {
+		final Boolean past = blockMap.put(item.id, isBlocked);
+		if (past == null || past != isBlocked) {
+			PluginMetrics.count(isBlocked ? "run.dispatcher.block"
+					: "run.dispatcher.permit");
+		}
+	}
+
+	public static ProjectIdentity identity(final Item item) {
+		final AbstractProject<?, ?> project = project(item);
+		if (project == null) {
+			return null;
+		}
+		final ProjectIdentity identity = ProjectIdentity.identity(project);
+		return identity;
+	}
+
+	/**
+	 * Forget decisions of items which left the queue.
+	 */
+	public static void purge(final Set<Integer> queuedSet) {
+		blockMap.keySet().retainAll(queuedSet);
+	}
+
+	public static AbstractProject<?, ?> project(final Item item) {
+		if (!(item.task instanceof AbstractProject)) {
+			return null;
+		}
+		final AbstractProject<?, ?> project = (AbstractProject<?, ?>) item.task;
+		return project;
+	}
+
+	@Override
+	public CauseOfBlockage canRun(final Queue.Item item) {
+
+		final ProjectIdentity identity = identity(item);
+
+		/** Cascade family projects must have identity. */
+		if (identity == null) {
+			return YES_CAN_RUN;
+		}
+
+		final RunLock lock = RunLock.ensure(identity.getFamilyID());
+
+		final CauseOfBlockage cause;
+		synchronized (lock) {
+			cause = canRunDueBuild(identity, lock, item);
+		}
+
+		decision(item, cause != YES_CAN_RUN);
+
+		return cause;
+
+	}
+
+	/**
+	 * Family mutual exclusion: layout and cascade builds run alone, member
+	 * builds wait for layout and cascade, except builds started by them.
+	 * <p>
+	 * Builds handed to executors but not started yet count as running.
+	 */
+	public CauseOfBlockage canRunDueBuild(final ProjectIdentity identity,
+			final RunLock lock, final Queue.Item item) {
+
+		final List<Action> actionList = item.getActions();
+
+		final EnumMap<ProjectRole, Integer> pendingMap = pendingMap(lock
+				.familyID());
+
+		final boolean hasLayout = hasRole(lock, pendingMap, ProjectRole.LAYOUT);
+		final boolean hasCascade = hasRole(lock, pendingMap,
+				ProjectRole.CASCADE);
+		final boolean hasMember = hasRole(lock, pendingMap, ProjectRole.MEMBER);
+
+		switch (identity.role()) {
+
+		case LAYOUT:
+			if (hasLayout) {
+				return new RunBlockCause(
+						"Layout build is waiting on another layout build.");
+			}
+			if (hasCascade) {
+				return new RunBlockCause(
+						"Layout build is waiting on a cascade build.");
+			}
+			if (hasMember) {
+				return new RunBlockCause(
+						"Layout build is waiting on a member build.");
+			}
+			break;
+
+		case CASCADE:
+			if (hasLayout) {
+				return new RunBlockCause(
+						"Cascade build is waiting on a layout build.");
+			}
+			if (hasCascade) {
+				return new RunBlockCause(
+						"Cascade build is waiting on other cascade build.");
+			}
+			if (hasMember) {
+				return new RunBlockCause(
+						"Cascade build is waiting on a member build.");
+			}
+			break;
+
+		case MEMBER:
+			if (hasLayout) {
+				if (!LayoutLogicAction.hasAction(actionList)) {
+					return new RunBlockCause(
+							"Member build is waiting on a layout build.");
+				}
+				/** Layout member build, proceed. */
+			} else if (hasCascade) {
+				final List<Cause> causeList = item.getCauses();
+				if (!MemberBuildCause.hasCause(causeList)
+						&& !CascadeLogicAction.hasAction(actionList)) {
+					/** Non-cascade member build, must wait. */
+					return new RunBlockCause(
+							"Non-cascade member build is waiting on a cascade build.");
+				}
+				/** Cascade member build, proceed. */
+			}
+			return canRunDueLimit(lock, pendingMap);
+
+		default:
+			break;
+		}
+
+		return YES_CAN_RUN;
+
+	}
+
+	/**
+	 * Family member build budget: running member builds and member builds
+	 * handed to executors but not yet started.
+	 */
+	public CauseOfBlockage canRunDueLimit(final RunLock lock,
+			final EnumMap<ProjectRole, Integer> pendingMap) {
+
+		final MavenModuleSet layoutProject = lock.layoutProject();
+		if (layoutProject == null) {
+			return YES_CAN_RUN;
+		}
+
+		final LayoutBuildWrapper wrapper = LayoutBuildWrapper
+				.wrapper(layoutProject);
+		if (wrapper == null) {
+			return YES_CAN_RUN;
+		}
+
+		final int limit = wrapper.getLayoutOptions().getMemberBuildLimit();
+		if (limit <= 0) {
+			return YES_CAN_RUN;
+		}
+
+		final int count = lock.activeCount(ProjectRole.MEMBER)
+				+ pendingMap.get(ProjectRole.MEMBER);
+
+		if (count >= limit) {
+			return new RunBlockCause("Member build is waiting on family limit: "
+					+ count + "/" + limit);
+		}
+
+		return YES_CAN_RUN;
+
+	}
+
+	/**
+	 * Check if family has running or pending builds with the role.
+	 */
+	public static boolean hasRole(final RunLock lock,
+			final EnumMap<ProjectRole, Integer> pendingMap,
+			final ProjectRole role) {
+		return lock.isActive(role) || pendingMap.get(role) > 0;
+	}
+
+	/**
+	 * Number of family builds by role assigned to executors, which did not
+	 * start yet.
+	 */
+	public static EnumMap<ProjectRole, Integer> pendingMap(
+			final String familyID) {
+		final EnumMap<ProjectRole, Integer> map = new EnumMap<ProjectRole, Integer>(
+				ProjectRole.class);
+		for (final ProjectRole role : ProjectRole.values()) {
+			map.put(role, 0);
+		}
+		for (final Queue.BuildableItem item : Queue.getInstance()
+				.getPendingItems()) {
+			final ProjectIdentity identity = identity(item);
+			if (identity != null && familyID.equals(identity.getFamilyID())) {
+				map.put(identity.role(), map.get(identity.role()) + 1);
+			}
+		}
+		return map;
+	}
+
+}
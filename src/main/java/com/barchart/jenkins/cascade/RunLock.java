@@ -0,0 +1,352 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.Extension;
+import hudson.maven.MavenModuleSet;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.PeriodicWork;
+import hudson.model.Queue;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Represents mutual exclusion between different cascade family project builds.
+ * <p>
+ * Lock is a singleton per cascade project family during the life of jenkins
+ * instance.
+ * <p>
+ * Running and queued build counts by role are tracked from build and queue
+ * events, and periodically reconciled with executors and build queue.
+ * 
+ * @author Andrei Pozolotin
+ */
+public class RunLock {
+
+	/**
+	 * Reconcile tracked counts with actual executors and build queue.
+	 */
+	@Extension
+	public static class Reconcile extends PeriodicWork {
+
+		@Override
+		protected void doRun() throws Exception {
+			reconcile();
+		}
+
+		@Override
+		public long getRecurrencePeriod() {
+			return RECONCILE_PERIOD;
+		}
+
+	}
+
+	protected final static Logger log = Logger.getLogger(RunLock.class
+			.getName());
+
+	/**
+	 * Tracked counts reconcile period.
+	 */
+	public static final long RECONCILE_PERIOD = Long.getLong(
+			RunLock.class.getName() + ".reconcilePeriod", 60 * 1000);
+
+	/***
+	 * [ familyID : runLock ]
+	 */
+	private static final ConcurrentMap<String, RunLock> lockMap = new ConcurrentHashMap<String, RunLock>();
+
+	/**
+	 * Produce existing or create new build lock.
+	 */
+	public static RunLock ensure(final String familyID) {
+		RunLock lock = lockMap.get(familyID);
+		if (lock == null) {
+			lock = new RunLock(familyID);
+			lockMap.putIfAbsent(familyID, lock);
+			lock = lockMap.get(familyID);
+		}
+		return lock;
+	}
+
+	/**
+	 * Number of running projects with the role in all families.
+	 */
+	public static int activeTotal(final ProjectRole role) {
+		int count = 0;
+		for (final RunLock lock : lockMap.values()) {
+			count += lock.activeCount(role);
+		}
+		return count;
+	}
+
+	/**
+	 * Ensure proper class loading and initialization.
+	 */
+	public static void init() {
+	}
+
+	/**
+	 * Family project identity, or null.
+	 */
+	@SuppressWarnings("rawtypes")
+	static ProjectIdentity identity(final Object task) {
+		if (task instanceof AbstractProject) {
+			return ProjectIdentity.identity((AbstractProject) task);
+		}
+		return null;
+	}
+
+	/**
+	 * Count actual running and queued builds in one pass, replace tracked
+	 * counts of all families.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void reconcile() {
+
+		final Map<String, EnumMap<ProjectRole, Integer>> activeMap = new HashMap<String, EnumMap<ProjectRole, Integer>>();
+		final Map<String, EnumMap<ProjectRole, Integer>> queuedMap = new HashMap<String, EnumMap<ProjectRole, Integer>>();
+
+		for (final Computer computer : Jenkins.getInstance().getComputers()) {
+			for (final Executor executor : computer.getExecutors()) {
+				final Queue.Executable executable = executor
+						.getCurrentExecutable();
+				if (executable instanceof AbstractBuild) {
+					tally(activeMap,
+							identity(((AbstractBuild) executable).getProject()));
+				}
+			}
+			for (final Executor executor : computer.getOneOffExecutors()) {
+				final Queue.Executable executable = executor
+						.getCurrentExecutable();
+				if (executable instanceof AbstractBuild) {
+					tally(activeMap,
+							identity(((AbstractBuild) executable).getProject()));
+				}
+			}
+		}
+
+		final Set<Integer> queuedSet = new HashSet<Integer>();
+
+		for (final Queue.Item item : Queue.getInstance().getItems()) {
+			tally(queuedMap, identity(item.task));
+			queuedSet.add(item.id);
+		}
+
+		RunDispatcher.purge(queuedSet);
+
+		for (final RunLock lock : lockMap.values()) {
+			synchronized (lock) {
+				lock.reconcile(activeMap.get(lock.familyID()),
+						queuedMap.get(lock.familyID()));
+			}
+		}
+
+	}
+
+	/**
+	 * Count family project by role.
+	 */
+	static void tally(final Map<String, EnumMap<ProjectRole, Integer>> map,
+			final ProjectIdentity identity) {
+		if (identity == null) {
+			return;
+		}
+		EnumMap<ProjectRole, Integer> countMap = map.get(identity
+				.getFamilyID());
+		if (countMap == null) {
+			countMap = new EnumMap<ProjectRole, Integer>(ProjectRole.class);
+			map.put(identity.getFamilyID(), countMap);
+		}
+		final Integer count = countMap.get(identity.role());
+		countMap.put(identity.role(), count == null ? 1 : count + 1);
+	}
+
+	private final String familyID;
+
+	/**
+	 * Last known layout project name.
+	 */
+	private volatile String layoutName;
+
+	/**
+	 * Number of queued projects of a given role.
+	 */
+	private final EnumMap<ProjectRole, AtomicInteger> queueCountMap = new EnumMap<ProjectRole, AtomicInteger>(
+			ProjectRole.class);
+
+	/**
+	 * Number of active projects of a given role.
+	 */
+	private final EnumMap<ProjectRole, AtomicInteger> roleCountMap = new EnumMap<ProjectRole, AtomicInteger>(
+			ProjectRole.class);
+
+	public RunLock(final String familyID) {
+		this.familyID = familyID;
+		for (final ProjectRole role : ProjectRole.values()) {
+			queueCountMap.put(role, new AtomicInteger(0));
+			roleCountMap.put(role, new AtomicInteger(0));
+		}
+	}
+
+	/**
+	 * Cascade family served by this lock.
+	 */
+	public String familyID() {
+		return familyID;
+	}
+
+	/**
+	 * Check if have any running cascade projects in the family.
+	 */
+	public boolean hasCascade() {
+		return isActive(ProjectRole.CASCADE);
+	}
+
+	/**
+	 * Check if have any running layout projects in the family.
+	 */
+	public boolean hasLayout() {
+		return isActive(ProjectRole.LAYOUT);
+	}
+
+	/**
+	 * Check if have any running member projects in the family.
+	 */
+	public boolean hasMember() {
+		return isActive(ProjectRole.MEMBER);
+	}
+
+	/**
+	 * Check if have queued projects with the role.
+	 */
+	public boolean isQueued(final ProjectRole role) {
+		return queueCountMap.get(role).get() > 0;
+	}
+
+	/**
+	 * Check if family has no running and no queued projects.
+	 * <p>
+	 * Queued counts are tracked from queue events; a queue item which left
+	 * the queue without an event keeps the family busy until the next
+	 * {@link #reconcile()}, so idleness may be reported up to
+	 * {@link #RECONCILE_PERIOD} late.
+	 */
+	public boolean isIdle() {
+		for (final ProjectRole role : ProjectRole.values()) {
+			if (isActive(role) || isQueued(role)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Family layout project, or null; resolved by name while it is valid.
+	 */
+	public MavenModuleSet layoutProject() {
+		final String name = layoutName;
+		if (name != null) {
+			final MavenModuleSet project = PluginUtilities.mavenProject(name);
+			final ProjectIdentity identity = project == null ? null
+					: ProjectIdentity.identity(project);
+			if (identity != null && identity.role() == ProjectRole.LAYOUT
+					&& familyID.equals(identity.getFamilyID())) {
+				return project;
+			}
+		}
+		final MavenModuleSet project = ProjectIdentity
+				.layoutProject(new ProjectIdentity(ProjectRole.LAYOUT,
+						familyID, "unused"));
+		layoutName = project == null ? null : project.getName();
+		return project;
+	}
+
+	/**
+	 * Replace tracked counts with actual counts.
+	 */
+	void reconcile(final EnumMap<ProjectRole, Integer> activeMap,
+			final EnumMap<ProjectRole, Integer> queuedMap) {
+		for (final ProjectRole role : ProjectRole.values()) {
+			final Integer active = activeMap == null ? null : activeMap
+					.get(role);
+			final Integer queued = queuedMap == null ? null : queuedMap
+					.get(role);
+			final int activeCount = active == null ? 0 : active;
+			final int queuedCount = queued == null ? 0 : queued;
+			if (roleCountMap.get(role).getAndSet(activeCount) != activeCount
+					|| queueCountMap.get(role).getAndSet(queuedCount) != queuedCount) {
+				log.fine("Reconcile " + familyID + " " + role + " active="
+						+ activeCount + " queued=" + queuedCount);
+			}
+		}
+	}
+
+	/**
+	 * Number of running projects with the role.
+	 */
+	public int activeCount(final ProjectRole role) {
+		return roleCountMap.get(role).get();
+	}
+
+	/**
+	 * Check if have running projects with the role.
+	 */
+	public boolean isActive(final ProjectRole role) {
+		return roleCountMap.get(role).get() > 0;
+	}
+
+	/**
+	 * Change number of running projects with the role.
+	 */
+	public void setActive(final ProjectRole role, final boolean on) {
+		final AtomicInteger count = roleCountMap.get(role);
+		if (on) {
+			count.incrementAndGet();
+		} else {
+			/** Builds started before plug-in activation are not counted. */
+			if (count.decrementAndGet() < 0) {
+				count.set(0);
+			}
+		}
+	}
+
+	/**
+	 * Change number of queued projects with the role.
+	 */
+	public void setQueued(final ProjectRole role, final boolean on) {
+		final AtomicInteger count = queueCountMap.get(role);
+		if (on) {
+			count.incrementAndGet();
+		} else {
+			/** Folded and cancelled tasks are fixed by reconcile. */
+			if (count.decrementAndGet() < 0) {
+				count.set(0);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return familyID + " active=" + roleCountMap + " queued="
+				+ queueCountMap;
+	}
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.jenkins.cascade;
+
+import hudson.AbortException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Fair read/write lock of cascade family shared workspace.
+ * <p>
+ * Lock is a singleton per cascade project family during the life of jenkins
+ * instance. Write mode is for workspace changes, such as checkout and
+ * maintenance; read mode is for concurrent workspace readers.
+ *
+ * @author Andrei Pozolotin
+ */
+public class WorkspaceLock {
+
+	/**
+	 * Acquired lock, must be released in finally block.
+	 */
+	public class Hold {
+
+		private final Lock lock;
+
+		private final boolean isWrite;
+
+		private final long timeStart = System.nanoTime();
+
+		private final long waitNanos;
+
+		Hold(final Lock lock, final boolean isWrite, final long waitNanos) {
+			this.lock = lock;
+			this.isWrite = isWrite;
+			this.waitNanos = waitNanos;
+		}
+
+		/**
+		 * Release the lock, returns hold time in millis.
+		 */
+		public long release() {
+			final long holdNanos = System.nanoTime() - timeStart;
+			lock.unlock();
+			holdTotal.addAndGet(holdNanos);
+			max(holdMax, holdNanos);
+			PluginMetrics.update("lock.workspace.hold", millis(holdNanos));
+			return TimeUnit.NANOSECONDS.toMillis(holdNanos);
+		}
+
+		@Override
+		public String toString() {
+			return (isWrite ? "write" : "read") + " lock wait: " + waitMillis()
+					+ " ms";
+		}
+
+		/**
+		 * Time spent waiting for the lock, millis.
+		 */
+		public long waitMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+		}
+
+	}
+
+	/**
+	 * Default time to wait for workspace lock, millis.
+	 */
+	public static final long LOCK_TIMEOUT = Long.getLong(
+			WorkspaceLock.class.getName() + ".lockTimeout", 30 * 60 * 1000);
+
+	/***
+	 * [ familyID : workspaceLock ]
+	 */
+	private static final ConcurrentMap<String, WorkspaceLock> lockMap = new ConcurrentHashMap<String, WorkspaceLock>();
+
+	/**
+	 * Produce existing or create new workspace lock.
+	 */
+	public static WorkspaceLock ensure(final String familyID) {
+		WorkspaceLock lock = lockMap.get(familyID);
+		if (lock == null) {
+			lock = new WorkspaceLock(familyID);
+			lockMap.putIfAbsent(familyID, lock);
+			lock = lockMap.get(familyID);
+		}
+		return lock;
+	}
+
+	static void max(final AtomicLong value, final long candidate) {
+		while (true) {
+			final long current = value.get();
+			if (candidate <= current
+					|| value.compareAndSet(current, candidate)) {
+				return;
+			}
+		}
+	}
+
+	static long millis(final long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	private final String familyID;
+
+	private final AtomicLong holdMax = new AtomicLong();
+
+	private final AtomicLong holdTotal = new AtomicLong();
+
+	/** Fair ordering: waiting writer is not starved by readers. */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(
+			true);
+
+	private final AtomicLong readCount = new AtomicLong();
+
+	private final AtomicLong timeoutCount = new AtomicLong();
+
+	private final AtomicLong waitMax = new AtomicLong();
+
+	private final AtomicLong waitTotal = new AtomicLong();
+
+	private final AtomicLong writeCount = new AtomicLong();
+
+	public WorkspaceLock(final String familyID) {
+		this.familyID = familyID;
+	}
+
+	/**
+	 * Acquire lock or fail on timeout.
+	 */
+	protected Hold acquire(final Lock target, final boolean isWrite,
+			final long timeout) throws InterruptedException, AbortException {
+
+		final long timeStart = System.nanoTime();
+
+		final boolean isLocked = target.tryLock(timeout,
+				TimeUnit.MILLISECONDS);
+
+		final long waitNanos = System.nanoTime() - timeStart;
+
+		waitTotal.addAndGet(waitNanos);
+		max(waitMax, waitNanos);
+		PluginMetrics.update("lock.workspace.wait", millis(waitNanos));
+
+		if (!isLocked) {
+			timeoutCount.incrementAndGet();
+			PluginMetrics.count("lock.workspace.timeout");
+			throw new AbortException("Workspace lock timeout: " + timeout
+					+ " ms, family: " + familyID);
+		}
+
+		if (isWrite) {
+			writeCount.incrementAndGet();
+		} else {
+			readCount.incrementAndGet();
+		}
+
+		return new Hold(target, isWrite, waitNanos);
+
+	}
+
+	/**
+	 * Cascade family served by this lock.
+	 */
+	public String familyID() {
+		return familyID;
+	}
+
+	/**
+	 * Shared read mode with default timeout.
+	 */
+	public Hold read() throws InterruptedException, AbortException {
+		return read(LOCK_TIMEOUT);
+	}
+
+	/**
+	 * Shared read mode.
+	 */
+	public Hold read(final long timeout) throws InterruptedException,
+			AbortException {
+		return acquire(lock.readLock(), false, timeout);
+	}
+
+	@Override
+	public String toString() {
+		final long count = readCount.get() + writeCount.get();
+		return "family: " + familyID //
+				+ " reads: " + readCount.get() //
+				+ " writes: " + writeCount.get() //
+				+ " timeouts: " + timeoutCount.get() //
+				+ " queued: " + lock.getQueueLength() //
+				+ " wait avg/max: "
+				+ (count == 0 ? 0 : millis(waitTotal.get()) / count) + "/"
+				+ millis(waitMax.get()) + " ms" //
+				+ " hold avg/max: "
+				+ (count == 0 ? 0 : millis(holdTotal.get()) / count) + "/"
+				+ millis(holdMax.get()) + " ms";
+	}
+
+	/**
+	 * Exclusive write mode with default timeout.
+	 */
+	public Hold write() throws InterruptedException, AbortException {
+		return write(LOCK_TIMEOUT);
+	}
+
+	/**
+	 * Exclusive write mode.
+	 */
+	public Hold write(final long timeout) throws InterruptedException,
+			AbortException {
+		return acquire(lock.writeLock(), true, timeout);
+	}
+
+}
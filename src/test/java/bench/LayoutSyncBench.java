@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package bench;
+
+import hudson.BulkChange;
+import hudson.maven.MavenModuleSet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import com.barchart.jenkins.cascade.LayoutLogic;
+
+/**
+ * Compare full config clone with lightweight config sync for member projects
+ * with long build history.
+ * <p>
+ * Not run by default, use: mvn test -Dtest=LayoutSyncBench
+ */
+public class LayoutSyncBench {
+
+	static final int BUILD_COUNT = Integer.getInteger("bench.builds", 1500);
+
+	static final int ROUND_COUNT = Integer.getInteger("bench.rounds", 20);
+
+	@Rule
+	public JenkinsRule jenkins = new JenkinsRule();
+
+	/**
+	 * Fabricate build records on disk, then reload project.
+	 */
+	static void makeBuilds(final MavenModuleSet project, final int count)
+			throws Exception {
+
+		final SimpleDateFormat format = new SimpleDateFormat(
+				"yyyy-MM-dd_HH-mm-ss");
+
+		final long timeStart = System.currentTimeMillis() - count * 1000L;
+
+		for (int number = 1; number <= count; number++) {
+
+			final long time = timeStart + number * 1000L;
+
+			final File folder = new File(project.getBuildDir(),
+					format.format(new Date(time)));
+
+			folder.mkdirs();
+
+			final String text = "<?xml version='1.0' encoding='UTF-8'?>\n" //
+					+ "<maven2-moduleset-build>\n" //
+					+ "  <actions/>\n" //
+					+ "  <number>" + number + "</number>\n" //
+					+ "  <result>SUCCESS</result>\n" //
+					+ "  <duration>1000</duration>\n" //
+					+ "  <keepLog>false</keepLog>\n" //
+					+ "</maven2-moduleset-build>\n";
+
+			final FileOutputStream output = new FileOutputStream(new File(
+					folder, "build.xml"));
+			try {
+				output.write(text.getBytes("UTF-8"));
+			} finally {
+				output.close();
+			}
+
+		}
+
+		project.updateNextBuildNumber(count + 1);
+
+		project.doReload();
+
+	}
+
+	static long heapUsed() {
+		final Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	static void report(final String name, final long nanos, final long bytes) {
+		System.out.println(String.format(
+				"%-8s builds=%d rounds=%d time=%d ms/round heap=%d KB", name,
+				BUILD_COUNT, ROUND_COUNT, nanos / ROUND_COUNT / 1000000,
+				bytes / 1024));
+	}
+
+	@Test
+	public void compare() throws Exception {
+
+		final MavenModuleSet layout = jenkins.jenkins.createProject(
+				MavenModuleSet.class, "layout");
+		layout.setGoals("clean install");
+
+		final MavenModuleSet member = jenkins.jenkins.createProject(
+				MavenModuleSet.class, "member");
+
+		makeBuilds(member, BUILD_COUNT);
+
+		/** Warm up. */
+		LayoutLogic.cloneConfig(layout, member);
+		LayoutLogic.syncConfig(layout, member);
+
+		{
+			final long heapStart = heapUsed();
+			final long timeStart = System.nanoTime();
+			for (int round = 0; round < ROUND_COUNT; round++) {
+				LayoutLogic.cloneConfig(layout, member);
+				member.getLastBuild();
+				member.save();
+			}
+			final long timeFinish = System.nanoTime();
+			report("clone", timeFinish - timeStart, heapUsed() - heapStart);
+		}
+
+		{
+			final long heapStart = heapUsed();
+			final long timeStart = System.nanoTime();
+			for (int round = 0; round < ROUND_COUNT; round++) {
+				final BulkChange change = new BulkChange(member);
+				try {
+					LayoutLogic.syncConfig(layout, member);
+					member.getLastBuild();
+					change.commit();
+				} finally {
+					change.abort();
+				}
+			}
+			final long timeFinish = System.nanoTime();
+			report("sync", timeFinish - timeStart, heapUsed() - heapStart);
+		}
+
+	}
+
+}
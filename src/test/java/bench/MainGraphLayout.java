@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import com.barchart.jenkins.cascade.GraphLayout;
+
+/**
+ * Compare built-in graph layout with graphviz dot on synthetic families.
+ * <p>
+ * Usage: MainGraphLayout [node-count ...]
+ */
+public class MainGraphLayout {
+
+	static final int ROUND_COUNT = Integer.getInteger("bench.rounds", 10);
+
+	static final String[] COLORS = { "red", "chocolate", "blue",
+			"forestgreen" };
+
+	/**
+	 * Family graph: each member depends on up to 3 earlier members.
+	 */
+	static GraphLayout makeLayout(final int size, final StringBuilder dot) {
+
+		final Random random = new Random(size);
+
+		final GraphLayout layout = new GraphLayout();
+
+		dot.append("digraph {\nnode [shape=box, style=rounded];\n");
+
+		for (int index = 0; index < size; index++) {
+			final String name = "member-" + index;
+			layout.node(name, name + "\n1.0." + index + "-SNAPSHOT",
+					"http://localhost/job/" + name + "/");
+			dot.append("\"" + name + "\" [label=\"" + name + "\\n1.0."
+					+ index + "-SNAPSHOT\" fontsize=10];\n");
+		}
+
+		for (int index = 1; index < size; index++) {
+			final int count = 1 + random.nextInt(3);
+			for (int link = 0; link < count; link++) {
+				final int source = random.nextInt(index);
+				final String color = COLORS[random.nextInt(COLORS.length)];
+				layout.link("member-" + source, "member-" + index, color);
+				dot.append("\"member-" + source + "\" -> \"member-" + index
+						+ "\" [color=" + color + "];\n");
+			}
+		}
+
+		dot.append("}\n");
+
+		return layout;
+
+	}
+
+	static void report(final int size, final String step, final long nanos,
+			final int bytes) {
+		System.out.println(String.format("%6d %-8s %10d us %10d bytes", size,
+				step, nanos / ROUND_COUNT / 1000, bytes));
+	}
+
+	/**
+	 * Render with external dot, or -1 when graphviz is missing.
+	 */
+	static int runDot(final String source, final String type) {
+		try {
+			final Process process = new ProcessBuilder("dot", "-T" + type)
+					.start();
+			final OutputStream input = process.getOutputStream();
+			input.write(source.getBytes("UTF-8"));
+			input.close();
+			final InputStream output = process.getInputStream();
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			final byte[] array = new byte[64 * 1024];
+			int count;
+			while ((count = output.read(array)) > 0) {
+				buffer.write(array, 0, count);
+			}
+			process.waitFor();
+			return buffer.size();
+		} catch (final Exception e) {
+			return -1;
+		}
+	}
+
+	public static void main(final String... args) throws Exception {
+
+		System.setProperty("java.awt.headless", "true");
+
+		final String[] sizeList = args.length == 0 ? new String[] { "50",
+				"500" } : args;
+
+		for (final String sizeText : sizeList) {
+
+			final int size = Integer.parseInt(sizeText);
+
+			final StringBuilder dot = new StringBuilder();
+
+			final GraphLayout layout = makeLayout(size, dot);
+
+			/** Warm up. */
+			layout.layout().renderSVG();
+			layout.renderPNG();
+
+			{
+				final long timeStart = System.nanoTime();
+				int bytes = 0;
+				for (int round = 0; round < ROUND_COUNT; round++) {
+					bytes = layout.layout().renderSVG().length();
+				}
+				report(size, "java-svg", System.nanoTime() - timeStart, bytes);
+			}
+
+			{
+				final long timeStart = System.nanoTime();
+				int bytes = 0;
+				for (int round = 0; round < ROUND_COUNT; round++) {
+					bytes = layout.layout().renderPNG().length;
+				}
+				report(size, "java-png", System.nanoTime() - timeStart, bytes);
+			}
+
+			for (final String type : new String[] { "svg", "png" }) {
+				final long timeStart = System.nanoTime();
+				int bytes = 0;
+				for (int round = 0; round < ROUND_COUNT; round++) {
+					bytes = runDot(dot.toString(), type);
+				}
+				if (bytes < 0) {
+					System.out.println("graphviz dot is not available");
+					break;
+				}
+				report(size, "dot-" + type, System.nanoTime() - timeStart,
+						bytes);
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.util.FileUtils;
+
+import com.barchart.jenkins.cascade.PluginScmBackend;
+import com.barchart.jenkins.cascade.PluginScmGit;
+import com.barchart.jenkins.cascade.PluginScmType;
+
+/**
+ * Compare SCM backends on local bare repositories of different size.
+ * <p>
+ * Usage: MainScmBackend [file-count ...]
+ */
+public class MainScmBackend {
+
+	static final String remoteName = "origin";
+	static final String remoteBranch = "master";
+	static final String localBranch = "cascade";
+
+	static final PersonIdent person = new PersonIdent("bench",
+			"bench@example.com");
+
+	static long mark;
+
+	static void mark() {
+		mark = System.nanoTime();
+	}
+
+	static void report(final PluginScmType type, final int size,
+			final String step) {
+		final long micros = (System.nanoTime() - mark) / 1000;
+		System.out.println(String.format("%-8s %8d %-12s %10d us",
+				type.name(), size, step, micros));
+	}
+
+	static void write(final File file, final String text) throws Exception {
+		FileUtils.mkdirs(file.getParentFile(), true);
+		final FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(text.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Bare repository with file count spread over module folders.
+	 */
+	static File makeOrigin(final File folder, final int size)
+			throws Exception {
+
+		final File origin = new File(folder, "origin-" + size + ".git");
+		if (origin.exists()) {
+			return origin;
+		}
+
+		final File seed = new File(folder, "seed-" + size);
+		FileUtils.delete(seed, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+		FileUtils.mkdirs(seed, true);
+
+		PluginScmGit.doCommand(seed, "init");
+		write(new File(seed, "pom.xml"), "<project/>\n");
+		for (int index = 0; index < size; index++) {
+			final File file = new File(seed, "module-" + (index % 100)
+					+ "/src/File" + index + ".java");
+			write(file, "class File" + index + " {}\n");
+		}
+		PluginScmGit.doCommand(seed, "add", "--all");
+		PluginScmGit.doCommand(seed, "-c", "user.name=bench", "-c",
+				"user.email=bench@example.com", "commit", "--quiet",
+				"--message", "seed");
+		PluginScmGit.doCommand(seed, "branch", "-M", remoteBranch);
+		PluginScmGit.doCommand(folder, "clone", "--bare", "--quiet",
+				seed.getAbsolutePath(), origin.getAbsolutePath());
+
+		return origin;
+
+	}
+
+	/**
+	 * Advance remote branch from a separate clone.
+	 */
+	static void advanceOrigin(final File folder, final File origin,
+			final int round) throws Exception {
+		final File peer = new File(folder, "peer");
+		FileUtils.delete(peer, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+		PluginScmGit.doCommand(folder, "clone", "--quiet",
+				origin.getAbsolutePath(), peer.getAbsolutePath());
+		write(new File(peer, "module-0/round.txt"), "round " + round + "\n");
+		PluginScmGit.doCommand(peer, "add", "--all");
+		PluginScmGit.doCommand(peer, "-c", "user.name=bench", "-c",
+				"user.email=bench@example.com", "commit", "--quiet",
+				"--message", "round " + round);
+		PluginScmGit.doCommand(peer, "push", "--quiet", "origin",
+				remoteBranch);
+	}
+
+	static void measure(final File folder, final File origin,
+			final PluginScmType type, final int size) throws Exception {
+
+		final PluginScmBackend backend = type.backend();
+
+		final File workspace = new File(folder, "workspace-"
+				+ type.name().toLowerCase() + "-" + size);
+
+		mark();
+		backend.clone(workspace, origin.getAbsolutePath(), remoteName);
+		report(type, size, "clone");
+
+		mark();
+		final String checkoutStatus = backend.checkout(workspace, localBranch,
+				remoteName, remoteBranch);
+		report(type, size, "checkout");
+		if (!PluginScmGit.isCheckoutSuccess(checkoutStatus)) {
+			throw new IllegalStateException("checkout " + checkoutStatus);
+		}
+
+		mark();
+		final boolean isClean = backend.isClean(workspace);
+		report(type, size, "status");
+		if (!isClean) {
+			throw new IllegalStateException("status");
+		}
+
+		advanceOrigin(folder, origin, size);
+
+		mark();
+		final String commit = backend.fetch(workspace, remoteName,
+				remoteBranch);
+		final String mergeStatus = backend.merge(workspace, commit);
+		report(type, size, "fetch+merge");
+		if (!PluginScmGit.isMergeSuccess(mergeStatus)) {
+			throw new IllegalStateException("merge " + mergeStatus);
+		}
+
+		final String pattern = "pom.xml";
+		write(new File(workspace, pattern), "<project>" + type + "</project>\n");
+
+		mark();
+		if (backend.modified(workspace).contains(pattern)) {
+			backend.add(workspace, pattern);
+			backend.commit(workspace, person, "[cascade] " + pattern);
+		}
+		report(type, size, "commit");
+
+		mark();
+		final String pushStatus = backend.push(workspace, remoteName,
+				localBranch, remoteBranch);
+		report(type, size, "push");
+		if (!PluginScmGit.isPushSuccess(pushStatus)) {
+			throw new IllegalStateException("push " + pushStatus);
+		}
+
+	}
+
+	public static void main(final String[] args) throws Exception {
+
+		final int[] sizeList;
+		if (args.length == 0) {
+			sizeList = new int[] { 100, 1000, 10000, 50000 };
+		} else {
+			sizeList = new int[args.length];
+			for (int index = 0; index < args.length; index++) {
+				sizeList[index] = Integer.parseInt(args[index]);
+			}
+		}
+
+		final File folder = new File(new File("."), "target/bench-scm")
+				.getAbsoluteFile();
+
+		FileUtils.mkdirs(folder, true);
+
+		for (final int size : sizeList) {
+			final File origin = makeOrigin(folder, size);
+			for (final PluginScmType type : PluginScmType.values()) {
+				measure(folder, origin, type, size);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package bench;
+
+import hudson.model.StreamBuildListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.util.FileUtils;
+
+import com.barchart.jenkins.cascade.BuildLogger;
+import com.barchart.jenkins.cascade.PluginScmBackend;
+import com.barchart.jenkins.cascade.PluginScmGit;
+import com.barchart.jenkins.cascade.PluginScmSession;
+import com.barchart.jenkins.cascade.PluginScmSession.Operation;
+import com.barchart.jenkins.cascade.PluginScmSession.Step;
+import com.barchart.jenkins.cascade.PluginScmType;
+
+/**
+ * Cascade check-in against a local bare repository which moves during the
+ * cascade.
+ */
+public class MainScmCheckin {
+
+	static final String remoteName = "origin";
+	static final String remoteBranch = "master";
+	static final String localBranch = "cascade";
+
+	static final PersonIdent person = new PersonIdent("bench",
+			"bench@example.com");
+
+	static void write(final File file, final String text) throws Exception {
+		FileUtils.mkdirs(file.getParentFile(), true);
+		final FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(text.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+	static void commit(final File workspace, final String path,
+			final String text) throws Exception {
+		write(new File(workspace, path), text);
+		PluginScmGit.doCommand(workspace, "add", "--all");
+		PluginScmGit.doCommand(workspace, "-c", "user.name=bench", "-c",
+				"user.email=bench@example.com", "commit", "--quiet",
+				"--message", path);
+	}
+
+	public static void main(final String[] args) throws Exception {
+
+		final BuildLogger logger = new BuildLogger(new StreamBuildListener(
+				System.out));
+
+		final File folder = new File(new File("."), "target/bench-checkin")
+				.getAbsoluteFile();
+
+		for (final PluginScmType type : PluginScmType.values()) {
+
+			final PluginScmBackend backend = type.backend();
+
+			FileUtils.delete(folder, FileUtils.RECURSIVE
+					| FileUtils.IGNORE_ERRORS);
+			FileUtils.mkdirs(folder, true);
+
+			final File origin = new File(folder, "origin.git");
+			final File peer = new File(folder, "peer");
+			final File cascade = new File(folder, "cascade");
+
+			PluginScmGit.doCommand(folder, "init", "--quiet", "--bare",
+					origin.getAbsolutePath());
+
+			PluginScmGit.doCommand(folder, "clone", "--quiet",
+					origin.getAbsolutePath(), peer.getAbsolutePath());
+			commit(peer, "pom.xml", "<project/>\n");
+			PluginScmGit.doCommand(peer, "push", "--quiet", remoteName,
+					"HEAD:" + remoteBranch);
+
+			backend.clone(cascade, origin.getAbsolutePath(), remoteName);
+			backend.checkout(cascade, localBranch, remoteName, remoteBranch);
+
+			/** Cascade release commits. */
+			for (int index = 0; index < 3; index++) {
+				commit(cascade, "module-" + index + "/pom.xml", "<project/>\n");
+			}
+
+			/** Remote moves during the cascade. */
+			commit(peer, "README", "moved\n");
+			PluginScmGit.doCommand(peer, "push", "--quiet", remoteName,
+					"HEAD:" + remoteBranch);
+
+			final Step step = PluginScmSession.doPush(new Step(
+					Operation.PUSH, null), logger, backend, cascade, person,
+					localBranch, remoteName, remoteBranch);
+
+			System.out.println(type + " " + step);
+
+			if (!step.isSuccess() || step.retries() != 1) {
+				throw new IllegalStateException("Unexpected: " + step);
+			}
+
+		}
+
+	}
+
+}